@@ -31,7 +31,7 @@ public class DepartmentStore {
      * - M: Move an item from one location to another
      * - O: Checkout all items from a specific cart
      * - P: Print all items in the store
-     * - R: Print by RFID tag number (currently not implemented)
+     * - R: Print all items with a specific RFID tag number
      * - U: Update inventory system (remove all purchased items)
      * - Q: Exit the program
      * 
@@ -143,7 +143,9 @@ public class DepartmentStore {
 
                 case "R":
                     // Print by RFID tag number
-                    System.out.println("Feature not yet implemented.");
+                    System.out.println("Enter the RFID:");
+                    String rfid = scanner.nextLine();
+                    list.printByRFID(rfid);
                     break;
 
                 case "U":
@@ -7,6 +7,8 @@
  * - An ItemInfo object with item details
  * - A reference to the next node in the list
  * - A reference to the previous node in the list
+ * - The RFID number of the item, parsed once from its hexadecimal tag
+ * - Forward references on the skip list levels above the linked list, if any
  * 
  * @author John Hartmann
  * @version 1.0
@@ -25,6 +27,12 @@ public class ItemInfoNode {
     /** Reference to the previous node in the linked list */
     private ItemInfoNode prevlink;
 
+    /** The RFID number of the item, or -1 if there is no item or its tag is invalid */
+    private long rfid;
+
+    /** Forward references on skip list levels 1 and up, or null if the node is only on level 0 */
+    private ItemInfoNode[] skiplinks;
+
     /**
      * Constructs a new ItemInfoNode with default values.
      * Initializes all instance variables to null, creating an empty node
@@ -36,6 +44,7 @@ public class ItemInfoNode {
         this.itemInfo = null;
         this.nextlink = null;  
         this.prevlink = null;
+        this.rfid = -1;
     }
     /**
      * Constructs a new ItemInfoNode with the specified ItemInfo.
@@ -51,6 +60,7 @@ public class ItemInfoNode {
         this.itemInfo = itemInfo;
         this.nextlink = null;
         this.prevlink = null;
+        this.rfid = rfidValue(itemInfo.getTag());
     }
 
     /**
@@ -72,6 +82,15 @@ public class ItemInfoNode {
         return itemInfo != null ? itemInfo.getTag() : null;
     }
 
+    /**
+     * Gets the RFID number of the item, parsed when the item was stored in this node.
+     * 
+     * @return the 36-bit RFID number, or -1 if there is no item or its tag is invalid
+     */
+    long getRFID() {
+        return rfid;
+    }
+
     /**
      * Gets the reference to the next node in the linked list.
      * 
@@ -108,6 +127,44 @@ public class ItemInfoNode {
         this.nextlink = nextlink;
     }
 
+    /**
+     * Gets the number of skip list levels this node is linked on, counting the linked list itself.
+     * 
+     * @return the height of the node, at least 1
+     */
+    int getHeight() {
+        return skiplinks == null ? 1 : skiplinks.length + 1;
+    }
+
+    /**
+     * Sets the number of skip list levels this node is linked on, clearing its skip links.
+     * 
+     * @param height the height of the node, at least 1
+     */
+    void setHeight(int height) {
+        skiplinks = height > 1 ? new ItemInfoNode[height - 1] : null;
+    }
+
+    /**
+     * Gets the next node on a skip list level above the linked list.
+     * 
+     * @param level the level, from 1 to getHeight() - 1
+     * @return the next node on that level, or null if this is the last one
+     */
+    ItemInfoNode getSkip(int level) {
+        return skiplinks[level - 1];
+    }
+
+    /**
+     * Sets the next node on a skip list level above the linked list.
+     * 
+     * @param level the level, from 1 to getHeight() - 1
+     * @param skiplink the next node on that level (can be null)
+     */
+    void setSkip(int level, ItemInfoNode skiplink) {
+        skiplinks[level - 1] = skiplink;
+    }
+
     /**
      * Sets the ItemInfo object for this node.
      * Replaces the current ItemInfo with the provided one.
@@ -120,6 +177,7 @@ public class ItemInfoNode {
             throw new IllegalArgumentException("ItemInfo cannot be null");
         }
         this.itemInfo = info;
+        this.rfid = rfidValue(info.getTag());
     }
 
     /**
@@ -151,4 +209,33 @@ public class ItemInfoNode {
     public boolean hasPrev() {
         return prevlink != null;
     }
+
+    /**
+     * Converts an RFID tag to its numeric value without creating any objects.
+     * 
+     * @param rfidTag the RFID tag (9 characters from 0-9, a-f and A-F)
+     * @return the 36-bit RFID number, or -1 if rfidTag is null or not a valid tag
+     */
+    static long rfidValue(String rfidTag) {
+        if (rfidTag == null || rfidTag.length() != 9) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < 9; i++) {
+            char c = rfidTag.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'a' && c <= 'f') {
+                digit = c - 'a' + 10;
+            } else if (c >= 'A' && c <= 'F') {
+                digit = c - 'A' + 10;
+            } else {
+                // Only ASCII digits, as ItemInfo.setTag accepts, not other Unicode digits
+                return -1;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
 }
\ No newline at end of file
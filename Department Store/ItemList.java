@@ -1,3 +1,5 @@
+import java.util.Random;
+
 /**
  * A doubly-linked list implementation for managing ItemInfo objects.
  * The list maintains items in sorted order by RFID tag number (parsed as hexadecimal).
@@ -5,6 +7,13 @@
  * 
  * The list maintains references to head, tail, and current nodes for efficient operations.
  * Items are automatically inserted in the correct sorted position based on their RFID tags.
+ * An RFIDIndex maps each RFID number to the first node carrying it, so finding an item
+ * by its tag takes expected constant time instead of a walk from the head.
+ * 
+ * The doubly-linked list is the bottom level of a skip list: each node is also linked on
+ * a random number of sparser levels above it, a quarter as many nodes per level, so an
+ * insertion finds its position in expected O(log N) steps. Nodes are compared by the RFID
+ * number cached in each node, so no tag is parsed while searching.
  * 
  * @author John Hartmann
  * @version 1.0
@@ -26,6 +35,24 @@ public class ItemList {
     /** The number of nodes currently in the list */
     private int size;
 
+    /** Maps each RFID number in the list to the first node with that number */
+    private RFIDIndex index;
+
+    /** The most skip list levels a node can be linked on */
+    private static final int MAX_LEVEL = 16;
+
+    /** The first node on each skip list level above the linked list, indexed by level */
+    private ItemInfoNode[] skipHeads;
+
+    /** The number of skip list levels in use, counting the linked list itself */
+    private int levels;
+
+    /** The last node before the search position on each level, or null for the start of the level */
+    private ItemInfoNode[] update;
+
+    /** Chooses the height of each new node */
+    private Random random;
+
     /**
      * Constructs an empty ItemList.
      * Initializes all references to null and size to 0.
@@ -37,6 +64,11 @@ public class ItemList {
         tail = null;
         current = null;
         size = 0;
+        index = new RFIDIndex();
+        skipHeads = new ItemInfoNode[MAX_LEVEL];
+        levels = 1;
+        update = new ItemInfoNode[MAX_LEVEL];
+        random = new Random();
     }
 
     /**
@@ -80,8 +112,8 @@ public class ItemList {
      * The RFID tag is treated as a hexadecimal number for comparison purposes.
      * Duplicate RFID numbers are allowed and will be grouped together.
      * 
-     * Complexity: O(N) - Must traverse the list to find the correct insertion position.
-     * In worst case, traverses entire list when inserting at the tail.
+     * Complexity: O(log N) expected - Descends the skip list levels to find the correct
+     * insertion position, taking a constant expected number of steps on each level.
      * 
      * @param name the name of the item
      * @param rfidTag the RFID tag number (9-character hexadecimal)
@@ -102,58 +134,58 @@ public class ItemList {
 
         ItemInfoNode newNode = new ItemInfoNode(info);
         System.out.println(newNode.getInfo());
+        long newNodeRFID = newNode.getRFID();
 
-        // Case 1: Empty list → insert at head/tail
-        if (head == null) {
-            head = tail = newNode;
-            size++;
-            System.out.println("Item inserted at Head.");
-            return;
+        // From the top level down, skip past every node with a smaller RFID number, so the
+        // new node goes before any node with an equal one and becomes first of its group
+        ItemInfoNode prev = null;
+        for (int level = levels - 1; level >= 0; level--) {
+            ItemInfoNode next = following(prev, level);
+            while (next != null && next.getRFID() < newNodeRFID) {
+                prev = next;
+                next = following(prev, level);
+            }
+            update[level] = prev;
         }
 
-        long newNodeRFID = Long.parseLong(newNode.getID(), 16);
-        long headRFID = Long.parseLong(head.getID(), 16);
-
-        // Case 2: New node is smaller than head → insert at head
-        if (newNodeRFID < headRFID) {
-            newNode.setNext(head);
-            head.setPrev(newNode);
+        // Link the new node into the linked list after prev
+        ItemInfoNode next = prev == null ? head : prev.getNext();
+        newNode.setPrev(prev);
+        newNode.setNext(next);
+        if (prev == null) {
             head = newNode;
-            size++;
-            System.out.println("Item inserted at Head.");
-            return;
+        } else {
+            prev.setNext(newNode);
+        }
+        if (next == null) {
+            tail = newNode;
+        } else {
+            next.setPrev(newNode);
         }
 
-        // Case 3: Traverse to find correct position
-        ItemInfoNode current = head;
-        while (current != null) {
-            Long currentRFID = Long.parseLong(current.getID(), 16);
-
-            if (newNodeRFID > currentRFID) {
-                if (current.getNext() == null) { // Insert at tail
-                    current.setNext(newNode);
-                    newNode.setPrev(current);
-                    tail = newNode;
-                    size++;
-                    System.out.println("Item inserted at Tail.");
-                    return;
-                }
-                current = current.getNext();
-            } else { // Insert before current (middle or equal case)
-                newNode.setNext(current);
-                newNode.setPrev(current.getPrev());
-                if (current.getPrev() != null) {
-                    current.getPrev().setNext(newNode);
-                } else {
-                    // If current.getPrev() is null, current is head, so update head
-                    head = newNode;
-                }
-                current.setPrev(newNode);
-                size++;
-                System.out.println("Item inserted in Middle.");
-                return;
+        // Link it into the levels above on which it appears
+        int height = randomHeight();
+        newNode.setHeight(height);
+        for (int level = 1; level < height; level++) {
+            ItemInfoNode before = level < levels ? update[level] : null;
+            newNode.setSkip(level, following(before, level));
+            if (before == null) {
+                skipHeads[level] = newNode;
+            } else {
+                before.setSkip(level, newNode);
             }
         }
+        levels = Math.max(levels, height);
+        size++;
+        index.put(newNodeRFID, newNode);
+
+        if (prev == null) {
+            System.out.println("Item inserted at Head.");
+        } else if (next == null) {
+            System.out.println("Item inserted at Tail.");
+        } else {
+            System.out.println("Item inserted in Middle.");
+        }
     }
 
     /**
@@ -183,11 +215,17 @@ public class ItemList {
      * Does not destroy the list structure, only removes specific nodes.
      * 
      * Complexity: O(N) - Must examine each node to check location, and removal
-     * operations are O(1) for each node when we have direct reference.
+     * operations, including the index update, are O(1) for each node when we have
+     * direct reference.
      */
     public void removeAllPurchased() {
         current = head;
         boolean foundItems = false;
+
+        // The last kept node seen on each skip list level, or null for the start of the level
+        for (int level = 1; level < levels; level++) {
+            update[level] = null;
+        }
         
         while (current != null) {
             ItemInfo item = current.getInfo();
@@ -202,6 +240,16 @@ public class ItemList {
                 
                 // Store the next node before removing current
                 ItemInfoNode nextNode = current.getNext();
+
+                // Hand the index entry to the next node of the same group, if there is one
+                long rfid = current.getRFID();
+                if (index.get(rfid) == current) {
+                    if (nextNode != null && nextNode.getRFID() == rfid) {
+                        index.put(rfid, nextNode);
+                    } else {
+                        index.remove(rfid);
+                    }
+                }
                 
                 // Remove the current node - handle all cases inline
                 if (current == head) {
@@ -223,19 +271,38 @@ public class ItemList {
                     nextNodeTemp.setPrev(prevNode);
                 }
                 
+                // Unlink the node from the skip list levels above
+                for (int level = 1; level < current.getHeight(); level++) {
+                    if (update[level] == null) {
+                        skipHeads[level] = current.getSkip(level);
+                    } else {
+                        update[level].setSkip(level, current.getSkip(level));
+                    }
+                }
+                
                 // Clean up the removed node's references
                 current.setNext(null);
                 current.setPrev(null);
+                current.setHeight(1);
                 size--; // Don't forget to decrement size
                 
                 // Move to the next node
                 current = nextNode;
             } else {
+                // A kept node is the one before any later removal on its levels
+                for (int level = 1; level < current.getHeight(); level++) {
+                    update[level] = current;
+                }
+                
                 // Only advance if we didn't remove the current node
                 current = current.getNext();
             }
         }
         
+        while (levels > 1 && skipHeads[levels - 1] == null) {
+            levels--;
+        }
+        
         if (!foundItems) {
             System.out.println("No items to remove.");
         }
@@ -243,11 +310,11 @@ public class ItemList {
     
     /**
      * Moves an item from a source location to a destination location.
-     * Searches for an item with the specified RFID tag at the source location
-     * and updates its location to the destination.
+     * Looks the RFID tag up in the index and updates the location of the first item
+     * with that tag at the source location to the destination.
      * 
-     * Complexity: O(N) - Must potentially traverse entire list to find item
-     * with matching RFID tag and source location.
+     * Complexity: O(1) expected - One index lookup, then a walk over only the items
+     * sharing the RFID tag, which are grouped together in the list.
      * 
      * @param rfidTag the RFID tag of the item to move
      * @param source the current location of the item
@@ -265,34 +332,71 @@ public class ItemList {
             throw new IllegalArgumentException("Cannot move item from 'out' location");
         }
         
-        current = head; 
+        long rfid = ItemInfoNode.rfidValue(rfidTag);
+        if (rfid < 0) {
+            return false; // Not a valid RFID tag, so no item can have it
+        }
         
-        while (current != null) {
+        current = index.get(rfid);
+        
+        while (current != null && current.getRFID() == rfid) {
             ItemInfo item = current.getInfo(); 
             
-            if (item.getTag().equalsIgnoreCase(rfidTag)) {
-                if (item.getLocation().equals(source)) {
-                    // Move the item by updating its current location
-                    try {
-                        item.setLocation(dest);
-                        return true; // Successfully found and moved the item
-                    } catch (Exception e) {
-                        // Re-throw as IllegalArgumentException to match method signature
-                        throw new IllegalArgumentException("Invalid destination format: " + e.getMessage());
-                    }
-                } else {
-                    // Item found but not at the specified source location
-                    return false;
+            if (item.getLocation().equals(source)) {
+                // Move the item by updating its current location
+                try {
+                    item.setLocation(dest);
+                    return true; // Successfully found and moved the item
+                } catch (Exception e) {
+                    // Re-throw as IllegalArgumentException to match method signature
+                    throw new IllegalArgumentException("Invalid destination format: " + e.getMessage());
                 }
             }
             
-            current = current.getNext(); // Move to next node
+            current = current.getNext(); // Move to next item with the same tag
         }
         
-        // Item with given RFID not found in the list
+        // No item with given RFID at the source location
         return false;
     }
 
+    /**
+     * Prints all items with a specified RFID tag in a formatted table.
+     * Items sharing a tag are printed in list order.
+     * Does not modify or destroy the list structure.
+     * 
+     * Complexity: O(1) expected - One index lookup, then a walk over only the items
+     * sharing the RFID tag.
+     * 
+     * @param rfidTag the RFID tag to search for (case-insensitive)
+     */
+    public void printByRFID(String rfidTag) {
+        if (rfidTag == null) {
+            System.out.println("RFID cannot be null");
+            return;
+        }
+        
+        long rfid = ItemInfoNode.rfidValue(rfidTag);
+        if (rfid < 0) {
+            System.out.println("RFID must be exactly 9 characters of 0-9, a-f, A-F");
+            return;
+        }
+        
+        ItemInfoNode temp = index.get(rfid); // Use local variable instead of instance variable
+        if (temp == null) {
+            System.out.println("No items found with RFID: " + rfidTag);
+            return;
+        }
+        
+        System.out.println("Item Name RFID      Location  Location  Price");
+        System.out.println("--------- --------- --------- --------- ------");
+        
+        while (temp != null && temp.getRFID() == rfid) {
+            System.out.println(temp.getInfo().toString());
+            temp = temp.getNext();
+        }
+    }
+
     /**
      * Prints all items currently at a specified location in a formatted table.
      * Items are displayed in sorted order by RFID tag number.
@@ -445,4 +549,34 @@ public class ItemList {
         
         return total;
     }
+
+    /**
+     * Gets the node after another on a level of the skip list.
+     * 
+     * Complexity: O(1) - Follows a single reference.
+     * 
+     * @param node the node, or null for the start of the level
+     * @param level the level, 0 for the linked list itself
+     * @return the next node on that level, or null if there is none
+     */
+    private ItemInfoNode following(ItemInfoNode node, int level) {
+        if (node == null) {
+            return level == 0 ? head : skipHeads[level];
+        }
+        return level == 0 ? node.getNext() : node.getSkip(level);
+    }
+
+    /**
+     * Chooses the number of levels a new node is linked on. Each level above the first
+     * is reached with probability 1/4, up to MAX_LEVEL.
+     * 
+     * Complexity: O(1) - Draws a single random number.
+     * 
+     * @return the height of the new node, from 1 to MAX_LEVEL
+     */
+    private int randomHeight() {
+        // Each pair of trailing zero bits is one more level
+        int bits = random.nextInt() | (1 << (2 * (MAX_LEVEL - 1)));
+        return Integer.numberOfTrailingZeros(bits) / 2 + 1;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,160 @@
+/**
+ * An open-addressing hash table from RFID tag number to a node of an ItemList.
+ * Keys are the 36-bit values of the 9-character hexadecimal tags, held as primitive longs,
+ * so a lookup neither parses nor boxes anything.
+ *
+ * Collisions are resolved by linear probing, and removal shifts the rest of the probe run
+ * back into the freed slot instead of leaving a tombstone. The table doubles once it is
+ * half full, so the expected probe length stays constant.
+ *
+ * Because ItemList allows duplicate RFID numbers and keeps them grouped together, each key
+ * maps to the first node of its group; the others follow it in the list.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ * @since 2025
+ * Student ID: 115764215
+ * Recitation: R30
+ */
+class RFIDIndex {
+
+    /** The smallest number of slots in the table */
+    private static final int MIN_CAPACITY = 16;
+
+    /** The RFID number held in each slot */
+    private long[] keys;
+
+    /** The node held in each slot, or null if the slot is empty */
+    private ItemInfoNode[] nodes;
+
+    /** The number of keys in the table */
+    private int size;
+
+    /**
+     * Constructs an empty RFIDIndex.
+     *
+     * Complexity: O(1) - Allocates a table of fixed initial size.
+     */
+    RFIDIndex() {
+        keys = new long[MIN_CAPACITY];
+        nodes = new ItemInfoNode[MIN_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Gets the number of distinct RFID numbers in the index.
+     *
+     * @return the number of keys
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Finds the node stored for an RFID number.
+     *
+     * Complexity: O(1) expected - Probes a short run of slots.
+     *
+     * @param rfid the RFID number
+     * @return the first node with that RFID number, or null if there is none
+     */
+    ItemInfoNode get(long rfid) {
+        int mask = keys.length - 1;
+        for (int slot = hash(rfid) & mask; nodes[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == rfid) {
+                return nodes[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stores a node for an RFID number, replacing any node already stored for it.
+     *
+     * Complexity: O(1) amortized - Probes a short run of slots, with an occasional O(N) resize.
+     *
+     * @param rfid the RFID number
+     * @param node the node to store
+     */
+    void put(long rfid, ItemInfoNode node) {
+        int mask = keys.length - 1;
+        int slot = hash(rfid) & mask;
+        for (; nodes[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == rfid) {
+                nodes[slot] = node;
+                return;
+            }
+        }
+        keys[slot] = rfid;
+        nodes[slot] = node;
+        size++;
+        if (size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+    }
+
+    /**
+     * Removes an RFID number from the index.
+     *
+     * Complexity: O(1) expected - Probes and shifts a short run of slots.
+     *
+     * @param rfid the RFID number
+     */
+    void remove(long rfid) {
+        int mask = keys.length - 1;
+        int hole = hash(rfid) & mask;
+        while (nodes[hole] != null && keys[hole] != rfid) {
+            hole = (hole + 1) & mask;
+        }
+        if (nodes[hole] == null) {
+            return;
+        }
+        // Shift later entries of the probe run back so no lookup stops early at the hole
+        for (int slot = (hole + 1) & mask; nodes[slot] != null; slot = (slot + 1) & mask) {
+            int home = hash(keys[slot]) & mask;
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = keys[slot];
+                nodes[hole] = nodes[slot];
+                hole = slot;
+            }
+        }
+        nodes[hole] = null;
+        size--;
+    }
+
+    /**
+     * Rebuilds the table at a new capacity.
+     *
+     * Complexity: O(N) - Reinserts every key.
+     *
+     * @param capacity the new number of slots, a power of two
+     */
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        ItemInfoNode[] oldNodes = nodes;
+        keys = new long[capacity];
+        nodes = new ItemInfoNode[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldNodes[i] != null) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (nodes[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                nodes[slot] = oldNodes[i];
+            }
+        }
+    }
+
+    /**
+     * Scrambles an RFID number so that consecutive tags land in scattered slots.
+     *
+     * @param rfid the RFID number
+     * @return the slot hash
+     */
+    private static int hash(long rfid) {
+        long h = rfid * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
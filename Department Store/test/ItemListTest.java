@@ -0,0 +1,229 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Differential tests of ItemList against an ArrayList model. Random inserts, moves,
+ * checkouts, clean-ups and removals are applied to both, and after every step the linked
+ * list, every skip list level and the RFID lookups must agree with the model.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+class ItemListTest {
+
+    /** The real System.out, restored after each test */
+    private PrintStream console;
+
+    /**
+     * What the model knows about one item.
+     */
+    private static final class Item {
+
+        /** Unique name, used to match list nodes to model entries */
+        final String name;
+
+        /** The RFID number */
+        final long rfid;
+
+        /** The original location */
+        final String origin;
+
+        /** The current location */
+        String location;
+
+        /**
+         * Constructs an Item at its original location.
+         * @param name the item name
+         * @param rfid the RFID number
+         * @param origin the original location
+         */
+        Item(String name, long rfid, String origin) {
+            this.name = name;
+            this.rfid = rfid;
+            this.origin = origin;
+            this.location = origin;
+        }
+    }
+
+    /**
+     * Silences the messages ItemList prints for every operation.
+     */
+    @BeforeEach
+    void silence() {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * Restores System.out.
+     */
+    @AfterEach
+    void restore() {
+        System.setOut(console);
+    }
+
+    @Test
+    void randomOperationsMatchModel() {
+        for (long seed = 1; seed <= 4; seed++) {
+            Random random = new Random(seed);
+            ItemList list = new ItemList();
+            List<Item> model = new ArrayList<>();
+            int named = 0;
+
+            for (int step = 0; step < 3000; step++) {
+                int choice = random.nextInt(20);
+                if (choice < 10 || model.isEmpty()) {
+                    // Few distinct tags, so groups of equal RFID numbers are common
+                    long rfid = random.nextInt(4) == 0 ? 0xFFFFFFFFFL : (long) random.nextInt(200) * 0x1000003L;
+                    String tag = String.format("%09x", rfid);
+                    if (random.nextBoolean()) {
+                        tag = tag.toUpperCase();
+                    }
+                    Item item = new Item("i" + named++, rfid, shelf(random));
+                    list.insertInfo(item.name, tag, 1 + random.nextInt(100), item.origin);
+                    int at = 0;
+                    while (at < model.size() && model.get(at).rfid < rfid) {
+                        at++;
+                    }
+                    model.add(at, item);
+                } else if (choice < 15) {
+                    Item target = model.get(random.nextInt(model.size()));
+                    String source = random.nextInt(4) == 0 ? shelf(random) : target.location;
+                    if (source.equals("out")) {
+                        continue;
+                    }
+                    String dest = random.nextInt(3) == 0 ? cart(random) : shelf(random);
+                    Item expected = null;
+                    for (Item item : model) {
+                        if (item.rfid == target.rfid && item.location.equals(source)) {
+                            expected = item;
+                            break;
+                        }
+                    }
+                    String tag = String.format(random.nextBoolean() ? "%09x" : "%09X", target.rfid);
+                    assertEquals(expected != null, list.moveItem(tag, source, dest));
+                    if (expected != null) {
+                        expected.location = dest;
+                    }
+                } else if (choice < 17) {
+                    String cart = cart(random);
+                    for (Item item : model) {
+                        if (item.location.equals(cart)) {
+                            item.location = "out";
+                        }
+                    }
+                    list.checkOut(cart);
+                } else if (choice < 18) {
+                    for (Item item : model) {
+                        if (item.location.startsWith("s") && !item.location.equals(item.origin)) {
+                            item.location = item.origin;
+                        }
+                    }
+                    list.cleanStore();
+                } else {
+                    model.removeIf(item -> item.location.equals("out"));
+                    list.removeAllPurchased();
+                }
+                assertMatches(model, list);
+            }
+        }
+    }
+
+    @Test
+    void invalidTagsAreNotFound() {
+        ItemList list = new ItemList();
+        list.insertInfo("box", "00000000f", 5, "s00001");
+        assertTrue(list.moveItem("00000000F", "s00001", "s00002"));
+        assertFalse(list.moveItem("00000000\uFF10", "s00002", "s00003"));
+        assertFalse(list.moveItem("0000000f", "s00002", "s00003"));
+        assertThrows(IllegalArgumentException.class, () -> list.moveItem("00000000f", "out", "s00003"));
+    }
+
+    @Test
+    void emptiedListHasNoLevels() {
+        ItemList list = new ItemList();
+        for (int i = 0; i < 500; i++) {
+            list.insertInfo("i" + i, String.format("%09x", i), 1, "s00001");
+            list.moveItem(String.format("%09x", i), "s00001", "c001");
+        }
+        list.checkOut("c001");
+        list.removeAllPurchased();
+        assertEquals(0, list.getSize());
+        assertNull(list.getHead());
+        assertNull(list.getTail());
+
+        list.insertInfo("again", "000000001", 1, "s00001");
+        assertSame(list.getHead(), list.getTail());
+        assertMatches(List.of(new Item("again", 1, "s00001")), list);
+    }
+
+    /**
+     * Checks the linked list and every skip list level against the model.
+     * @param model the items the list should hold, in order
+     * @param list the list under test
+     */
+    private static void assertMatches(List<Item> model, ItemList list) {
+        assertEquals(model.size(), list.getSize());
+
+        // The last node seen that is linked on each level above the linked list
+        ItemInfoNode[] last = new ItemInfoNode[16];
+        ItemInfoNode prev = null;
+        ItemInfoNode node = list.getHead();
+        for (Item item : model) {
+            assertEquals(item.name, node.getInfo().getName());
+            assertEquals(item.rfid, node.getRFID());
+            assertEquals(item.origin, node.getInfo().getOrigin());
+            assertEquals(item.location, node.getInfo().getLocation());
+            assertSame(prev, node.getPrev());
+
+            // Each node must be the next one on every level it is linked on
+            for (int level = 1; level < node.getHeight(); level++) {
+                if (last[level] != null) {
+                    assertSame(node, last[level].getSkip(level));
+                }
+                last[level] = node;
+            }
+            prev = node;
+            node = node.getNext();
+        }
+        assertNull(node);
+        assertSame(prev, list.getTail());
+        for (int level = 1; level < last.length; level++) {
+            if (last[level] != null) {
+                assertNull(last[level].getSkip(level));
+            }
+        }
+    }
+
+    /**
+     * Picks one of a few shelves.
+     * @param random the source of randomness
+     * @return a shelf location
+     */
+    private static String shelf(Random random) {
+        return String.format("s%05d", random.nextInt(4));
+    }
+
+    /**
+     * Picks one of a few carts.
+     * @param random the source of randomness
+     * @return a cart location
+     */
+    private static String cart(Random random) {
+        return String.format("c%03d", random.nextInt(3));
+    }
+}
@@ -0,0 +1,73 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Differential tests of RFIDIndex against a HashMap, and of the RFID numbers it is keyed by.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+class RFIDIndexTest {
+
+    /**
+     * Random puts, replacements and removals over a small, clustered key space, so probe
+     * runs are long and backward-shift deletion is exercised on every resize.
+     */
+    @Test
+    void randomOperationsMatchHashMap() {
+        Random random = new Random(5);
+        RFIDIndex index = new RFIDIndex();
+        Map<Long, ItemInfoNode> model = new HashMap<>();
+        ItemInfoNode[] nodes = new ItemInfoNode[16];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new ItemInfoNode();
+        }
+
+        for (int step = 0; step < 200000; step++) {
+            // Keys share their low bits or sit in a narrow range
+            long rfid = random.nextBoolean() ? (long) random.nextInt(512) << 24
+                                             : 0xABC000000L + random.nextInt(2048);
+            if (random.nextInt(3) > 0) {
+                ItemInfoNode node = nodes[random.nextInt(nodes.length)];
+                index.put(rfid, node);
+                model.put(rfid, node);
+            } else {
+                index.remove(rfid);
+                model.remove(rfid);
+            }
+            assertEquals(model.size(), index.size());
+
+            long probe = random.nextBoolean() ? rfid : 0xABC000000L + random.nextInt(2048);
+            assertSame(model.get(probe), index.get(probe));
+        }
+
+        for (Map.Entry<Long, ItemInfoNode> entry : model.entrySet()) {
+            assertSame(entry.getValue(), index.get(entry.getKey()));
+        }
+        for (Long rfid : model.keySet().toArray(new Long[0])) {
+            index.remove(rfid);
+        }
+        assertEquals(0, index.size());
+        assertNull(index.get(0xABC000000L));
+    }
+
+    @Test
+    void rfidValueAcceptsOnlyAsciiHexDigits() {
+        assertEquals(0x0123456789L, ItemInfoNode.rfidValue("123456789"));
+        assertEquals(0xABCDEFABCL, ItemInfoNode.rfidValue("abcdefABC"));
+        assertEquals(0xFFFFFFFFFL, ItemInfoNode.rfidValue("fffffffff"));
+        assertEquals(-1, ItemInfoNode.rfidValue(null));
+        assertEquals(-1, ItemInfoNode.rfidValue("12345678"));
+        assertEquals(-1, ItemInfoNode.rfidValue("12345678g"));
+        // Fullwidth and Arabic-Indic digits are digits, but not tags ItemInfo.setTag accepts
+        assertEquals(-1, ItemInfoNode.rfidValue("12345678\uFF10"));
+        assertEquals(-1, ItemInfoNode.rfidValue("12345678\u0660"));
+    }
+}
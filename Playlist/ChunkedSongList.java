@@ -0,0 +1,900 @@
+import java.util.Arrays;
+
+/**
+ * ChunkedSongList is the growable storage engine behind Playlist.
+ * Songs are kept in a directory of fixed-capacity chunks, and a prefix array records
+ * how many songs come before each chunk. Lookups binary search the prefix array and
+ * then index into a single chunk, while inserts and removals only shift the elements
+ * of one chunk plus the prefix entries of the chunks that follow it.
+ *
+ * With a chunk capacity of B and n songs, get is O(log(n / B)) and add/remove are
+ * O(B + n / B), which is O(sqrt n) for the sizes Playlist is used with.
+ * All indices taken by this class are 0-based.
+ *
+ * Every stored song also carries an order label, a long that strictly increases
+ * along the list. Labels stay fixed while songs around them are inserted or removed,
+ * so secondary indexes can keep songs in playlist order without tracking positions.
+ * When no gap is left between two neighbours the labels of one chunk are spread out
+ * again, and only when that chunk has no room either is the whole list relabeled.
+ *
+ * Each chunk also keeps running totals of its song lengths and the directory keeps the
+ * number of seconds before each chunk, so the playback offset of a song and the song
+ * playing at a given time are both found with two binary searches in O(log n).
+ *
+ * Each chunk also keeps an order-sensitive polynomial hash of the SongFingerprints of its
+ * songs, and the directory keeps the combined hash of the chunks before each one, so the
+ * content hash of the whole list is always available in O(1) and an edit only rehashes
+ * the chunk it touches plus the directory entries after it. A second hash, built the same
+ * way from the case-preserving SongFingerprint.exact of each song, tells apart lists that
+ * only differ in case.
+ *
+ * Snapshots share structure: snapshot() hands the same directory and chunks to a new
+ * list in O(1). Every chunk records the list that owns it, and a list copies a chunk it
+ * does not own (and a directory it shares) the first time it writes to it, so later
+ * edits on either side copy only the chunks they touch.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+class ChunkedSongList {
+
+    /** Maximum number of songs held by a single chunk */
+    static final int CHUNK_CAPACITY = 512;
+
+    /** Initial number of slots in the chunk directory */
+    private static final int INITIAL_DIRECTORY = 4;
+
+    /** Distance between the labels of songs appended to either end of the list */
+    private static final long LABEL_GAP = 1L << 32;
+
+    /** Odd multiplier of the polynomial content hash */
+    private static final long HASH_BASE = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Receives the label changes made when the list runs out of room between two labels.
+     */
+    interface LabelListener {
+
+        /**
+         * Called for each song of a chunk before any of them is given a new label.
+         * @param song the song whose label is about to change
+         * @param oldLabel the label the song has now
+         */
+        void unlabeled(SongRecord song, long oldLabel);
+
+        /**
+         * Called for each song of a chunk after all of them have been given new labels.
+         * @param song the song whose label changed
+         * @param newLabel the label the song has now
+         */
+        void relabeled(SongRecord song, long newLabel);
+
+        /**
+         * Called after every song in the list has been given a new label.
+         */
+        void relabeledAll();
+    }
+
+    /**
+     * A single block of contiguous songs.
+     */
+    static final class Chunk {
+
+        /** Songs held by this chunk, only the first size slots are in use */
+        SongRecord[] songs;
+
+        /** Order label of each song, parallel to songs */
+        long[] labels;
+
+        /** ends[k] is the total length in seconds of songs 0 through k of this chunk */
+        int[] ends;
+
+        /** SongFingerprint of each song, parallel to songs */
+        long[] fingerprints;
+
+        /** SongFingerprint.exact of each song, parallel to songs */
+        long[] exactPrints;
+
+        /** Polynomial hash of the fingerprints of the songs in this chunk */
+        long hash;
+
+        /** Polynomial hash of the exact fingerprints of the songs in this chunk */
+        long exactHash;
+
+        /** HASH_BASE raised to size, what the hash of earlier songs is multiplied by */
+        long power = 1;
+
+        /** Number of songs currently held by this chunk */
+        int size;
+
+        /** Token of the list allowed to modify this chunk in place */
+        final Object owner;
+
+        /**
+         * Creates an empty chunk with room for CHUNK_CAPACITY songs.
+         * @param owner token of the list that may modify the chunk
+         */
+        Chunk(Object owner) {
+            songs = new SongRecord[CHUNK_CAPACITY];
+            labels = new long[CHUNK_CAPACITY];
+            ends = new int[CHUNK_CAPACITY];
+            fingerprints = new long[CHUNK_CAPACITY];
+            exactPrints = new long[CHUNK_CAPACITY];
+            size = 0;
+            this.owner = owner;
+        }
+
+        /**
+         * Creates a private copy of another chunk.
+         * @param other the chunk to copy
+         * @param owner token of the list that may modify the copy
+         */
+        Chunk(Chunk other, Object owner) {
+            songs = other.songs.clone();
+            labels = other.labels.clone();
+            ends = other.ends.clone();
+            fingerprints = other.fingerprints.clone();
+            exactPrints = other.exactPrints.clone();
+            hash = other.hash;
+            exactHash = other.exactHash;
+            power = other.power;
+            size = other.size;
+            this.owner = owner;
+        }
+
+        /**
+         * Recomputes the running length totals from slot from to the end of the chunk,
+         * and the content hashes of the whole chunk.
+         * @param from the first slot whose total may be out of date
+         */
+        void updateEnds(int from) {
+            int total = from > 0 ? ends[from - 1] : 0;
+            for (int k = from; k < size; k++) {
+                total += songs[k].getMinutes() * 60 + songs[k].getSeconds();
+                ends[k] = total;
+            }
+
+            hash = 0;
+            exactHash = 0;
+            power = 1;
+            for (int k = 0; k < size; k++) {
+                hash = hash * HASH_BASE + fingerprints[k];
+                exactHash = exactHash * HASH_BASE + exactPrints[k];
+                power *= HASH_BASE;
+            }
+        }
+
+        /**
+         * Gets the total length of the songs in this chunk.
+         * @return the length of the chunk in seconds
+         */
+        int seconds() {
+            return size == 0 ? 0 : ends[size - 1];
+        }
+    }
+
+    /** Directory of chunks in playlist order, only the first chunkCount slots are in use */
+    private Chunk[] chunks;
+
+    /** starts[c] is the number of songs stored before chunk c, starts[chunkCount] is the size */
+    private int[] starts;
+
+    /** times[c] is the length in seconds of the songs before chunk c, parallel to starts */
+    private long[] times;
+
+    /** hashes[c] is the content hash of the songs before chunk c, parallel to starts */
+    private long[] hashes;
+
+    /** exactHashes[c] is the exact content hash of the songs before chunk c, parallel to starts */
+    private long[] exactHashes;
+
+    /** Number of chunks currently in the directory */
+    private int chunkCount;
+
+    /** Notified whenever existing labels are changed, may be null */
+    private LabelListener labelListener;
+
+    /** Token marking the chunks this list may modify in place */
+    private Object owner;
+
+    /** True while the directory arrays may also be referenced by a snapshot */
+    private boolean directoryShared;
+
+    /**
+     * Constructs an empty ChunkedSongList.
+     */
+    ChunkedSongList() {
+        chunks = new Chunk[INITIAL_DIRECTORY];
+        starts = new int[INITIAL_DIRECTORY + 1];
+        times = new long[INITIAL_DIRECTORY + 1];
+        hashes = new long[INITIAL_DIRECTORY + 1];
+        exactHashes = new long[INITIAL_DIRECTORY + 1];
+        chunkCount = 0;
+        owner = new Object();
+        directoryShared = false;
+    }
+
+    /**
+     * Creates a list that shares this list's directory and chunks.
+     * Both lists take fresh owner tokens, so neither modifies the shared chunks in place.
+     * A list that has not been written since its last snapshot owns nothing and is left
+     * untouched, so snapshots of a published, read-only list are safe from any thread.
+     * The snapshot has no label listener.
+     * @return a new list holding the same songs and labels, created in O(1)
+     */
+    ChunkedSongList snapshot() {
+        ChunkedSongList copy = new ChunkedSongList();
+        copy.chunks = chunks;
+        copy.starts = starts;
+        copy.times = times;
+        copy.hashes = hashes;
+        copy.exactHashes = exactHashes;
+        copy.chunkCount = chunkCount;
+        copy.directoryShared = true;
+        if (!directoryShared) {
+            owner = new Object();
+            directoryShared = true;
+        }
+        return copy;
+    }
+
+    /**
+     * Determines the number of songs currently stored.
+     * @return the number of songs in this list
+     */
+    int size() {
+        return starts[chunkCount];
+    }
+
+    /**
+     * Gets the song at the given index.
+     * @param index 0-based index of the song, must be in [0, size)
+     * @return the song stored at index
+     */
+    SongRecord get(int index) {
+        int c = chunkIndexOf(index);
+        return chunks[c].songs[index - starts[c]];
+    }
+
+    /**
+     * Gets the order label of the song at the given index.
+     * @param index 0-based index of the song, must be in [0, size)
+     * @return the order label of the song stored at index
+     */
+    long labelAt(int index) {
+        int c = chunkIndexOf(index);
+        return chunks[c].labels[index - starts[c]];
+    }
+
+    /**
+     * Gets the total length of every song stored.
+     * @return the combined length in seconds
+     */
+    long totalSeconds() {
+        return times[chunkCount];
+    }
+
+    /**
+     * Gets the order-sensitive content hash of every song stored, built from the
+     * SongFingerprint of each song. Equal lists of equal songs always have equal hashes.
+     * @return the content hash
+     */
+    long contentHash() {
+        return hashes[chunkCount];
+    }
+
+    /**
+     * Gets the order-sensitive hash of every song stored, built from the case-preserving
+     * SongFingerprint.exact of each song, so lists whose songs only differ in case have
+     * different hashes.
+     * @return the exact content hash
+     */
+    long exactContentHash() {
+        return exactHashes[chunkCount];
+    }
+
+    /**
+     * Gets the playback offset of the song at the given index.
+     * @param index 0-based index of the song, must be in [0, size)
+     * @return the combined length in seconds of the songs before index
+     */
+    long offsetOf(int index) {
+        int c = chunkIndexOf(index);
+        int offset = index - starts[c];
+        return times[c] + (offset > 0 ? chunks[c].ends[offset - 1] : 0);
+    }
+
+    /**
+     * Finds the song that is playing a given number of seconds into the list.
+     * Songs with a length of zero are never playing.
+     * @param elapsed seconds since the start of the first song, must be in [0, totalSeconds)
+     * @return the 0-based index of the song playing at elapsed
+     */
+    int indexAt(long elapsed) {
+        // First chunk that ends after elapsed
+        int lo = 0;
+        int hi = chunkCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid + 1] > elapsed) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+
+        // First song of that chunk that ends after elapsed
+        Chunk chunk = chunks[lo];
+        long within = elapsed - times[lo];
+        int first = 0;
+        int last = chunk.size - 1;
+        while (first < last) {
+            int mid = (first + last) >>> 1;
+            if (chunk.ends[mid] > within) {
+                last = mid;
+            } else {
+                first = mid + 1;
+            }
+        }
+        return starts[lo] + first;
+    }
+
+    /**
+     * Sets the listener told about relabeling, replacing any previous listener.
+     * @param listener the listener to notify, or null for none
+     */
+    void setLabelListener(LabelListener listener) {
+        labelListener = listener;
+    }
+
+    /**
+     * Inserts a song at the given index, shifting later songs back by one.
+     * The song receives a label between the labels of its new neighbours.
+     * @param index 0-based index to insert at, must be in [0, size]
+     * @param song the song to insert
+     */
+    void add(int index, SongRecord song) {
+        ownDirectory();
+        if (chunkCount == 0) {
+            insertChunk(0, new Chunk(owner));
+        }
+
+        int c = index == size() ? chunkCount - 1 : chunkIndexOf(index);
+        int first = c;
+        int offset = index - starts[c];
+        Chunk chunk = ownChunk(c);
+
+        // Appending past a full chunk opens a fresh one, any other insert splits it in half
+        if (chunk.size == CHUNK_CAPACITY && offset == CHUNK_CAPACITY) {
+            insertChunk(c + 1, new Chunk(owner));
+            offset = 0;
+            c++;
+            chunk = chunks[c];
+        } else if (chunk.size == CHUNK_CAPACITY) {
+            splitChunk(c);
+            if (offset > chunk.size) {
+                offset -= chunk.size;
+                c++;
+                chunk = chunks[c];
+            }
+        }
+
+        System.arraycopy(chunk.songs, offset, chunk.songs, offset + 1, chunk.size - offset);
+        System.arraycopy(chunk.labels, offset, chunk.labels, offset + 1, chunk.size - offset);
+        System.arraycopy(chunk.fingerprints, offset, chunk.fingerprints, offset + 1, chunk.size - offset);
+        System.arraycopy(chunk.exactPrints, offset, chunk.exactPrints, offset + 1, chunk.size - offset);
+        chunk.songs[offset] = song;
+        chunk.fingerprints[offset] = SongFingerprint.of(song);
+        chunk.exactPrints[offset] = SongFingerprint.exact(song);
+        chunk.size++;
+        chunk.updateEnds(offset);
+        updateStarts(first);
+        assignLabel(c, offset);
+    }
+
+    /**
+     * Removes the song at the given index, shifting later songs forward by one.
+     * @param index 0-based index of the song to remove, must be in [0, size)
+     * @return the song that was removed
+     */
+    SongRecord remove(int index) {
+        ownDirectory();
+        int c = chunkIndexOf(index);
+        int offset = index - starts[c];
+        Chunk chunk = ownChunk(c);
+        SongRecord removed = chunk.songs[offset];
+
+        System.arraycopy(chunk.songs, offset + 1, chunk.songs, offset, chunk.size - offset - 1);
+        System.arraycopy(chunk.labels, offset + 1, chunk.labels, offset, chunk.size - offset - 1);
+        System.arraycopy(chunk.fingerprints, offset + 1, chunk.fingerprints, offset, chunk.size - offset - 1);
+        System.arraycopy(chunk.exactPrints, offset + 1, chunk.exactPrints, offset, chunk.size - offset - 1);
+        chunk.size--;
+        chunk.songs[chunk.size] = null;
+        chunk.updateEnds(offset);
+        updateStarts(compact(c));
+        return removed;
+    }
+
+    /**
+     * Copies the songs and labels of a range out of the list.
+     * @param from 0-based index of the first song to copy
+     * @param to 0-based index after the last song to copy, from <= to <= size
+     * @param songsOut receives the songs starting at slot 0, or null to skip them
+     * @param labelsOut receives the labels starting at slot 0, or null to skip them
+     */
+    void copyRange(int from, int to, SongRecord[] songsOut, long[] labelsOut) {
+        if (from == to) {
+            return;
+        }
+        int c = chunkIndexOf(from);
+        int offset = from - starts[c];
+        for (int copied = 0; copied < to - from; c++, offset = 0) {
+            Chunk chunk = chunks[c];
+            int length = Math.min(chunk.size - offset, to - from - copied);
+            if (songsOut != null) {
+                System.arraycopy(chunk.songs, offset, songsOut, copied, length);
+            }
+            if (labelsOut != null) {
+                System.arraycopy(chunk.labels, offset, labelsOut, copied, length);
+            }
+            copied += length;
+        }
+    }
+
+    /**
+     * Copies the cached SongFingerprints of a range out of the list.
+     * @param from 0-based index of the first song
+     * @param to 0-based index after the last song, from <= to <= size
+     * @param out receives the fingerprints starting at slot 0
+     */
+    void copyFingerprints(int from, int to, long[] out) {
+        if (from == to) {
+            return;
+        }
+        int c = chunkIndexOf(from);
+        int offset = from - starts[c];
+        for (int copied = 0; copied < to - from; c++, offset = 0) {
+            Chunk chunk = chunks[c];
+            int length = Math.min(chunk.size - offset, to - from - copied);
+            System.arraycopy(chunk.fingerprints, offset, out, copied, length);
+            copied += length;
+        }
+    }
+
+    /**
+     * Inserts a batch of songs at the given index in one pass.
+     * The songs after index are moved out once and placed back after the batch, the batch
+     * fills the target chunk and then as many full new chunks as it needs, and the directory
+     * and prefixes are updated once. Runs in O(B + count + n / B).
+     * @param index 0-based index to insert the first song at, must be in [0, size]
+     * @param batch the songs to insert, in order
+     * @param count the number of songs of batch to insert
+     */
+    void addAll(int index, SongRecord[] batch, int count) {
+        if (count == 0) {
+            return;
+        }
+        ownDirectory();
+        if (chunkCount == 0) {
+            insertChunk(0, new Chunk(owner));
+        }
+
+        int c = index == size() ? chunkCount - 1 : chunkIndexOf(index);
+        int offset = index - starts[c];
+        Chunk chunk = ownChunk(c);
+
+        // Pick labels for the batch between the songs it lands between
+        boolean hasPrev = offset > 0 || c > 0;
+        boolean hasNext = offset < chunk.size || c + 1 < chunkCount;
+        long prev = offset > 0 ? chunk.labels[offset - 1]
+                  : c > 0 ? chunks[c - 1].labels[chunks[c - 1].size - 1] : Long.MIN_VALUE;
+        long next = offset < chunk.size ? chunk.labels[offset]
+                  : c + 1 < chunkCount ? chunks[c + 1].labels[0] : Long.MAX_VALUE;
+        long[] labels = spreadLabels(prev, hasPrev, next, hasNext, count);
+
+        // Move the tail of the target chunk out of the way once
+        SongRecord[] tailSongs = Arrays.copyOfRange(chunk.songs, offset, chunk.size);
+        long[] tailLabels = Arrays.copyOfRange(chunk.labels, offset, chunk.size);
+        long[] tailFingerprints = Arrays.copyOfRange(chunk.fingerprints, offset, chunk.size);
+        long[] tailExactPrints = Arrays.copyOfRange(chunk.exactPrints, offset, chunk.size);
+        Arrays.fill(chunk.songs, offset, chunk.size, null);
+        chunk.size = offset;
+
+        long[] fingerprints = new long[count];
+        long[] exactPrints = new long[count];
+        for (int i = 0; i < count; i++) {
+            fingerprints[i] = SongFingerprint.of(batch[i]);
+            exactPrints[i] = SongFingerprint.exact(batch[i]);
+        }
+
+        Chunk[] added = new Chunk[(count + tailSongs.length) / CHUNK_CAPACITY + 1];
+        int addedCount = fill(chunk, added, 0, batch, labels, fingerprints, exactPrints, count);
+        Chunk lastFilled = addedCount > 0 ? added[addedCount - 1] : chunk;
+        addedCount = fill(lastFilled, added, addedCount, tailSongs, tailLabels, tailFingerprints, tailExactPrints,
+                          tailSongs.length);
+
+        chunk.updateEnds(offset);
+        for (int i = 0; i < addedCount; i++) {
+            added[i].updateEnds(0);
+        }
+        insertChunks(c + 1, added, addedCount);
+        updateStarts(c);
+
+        if (labels == null) {
+            relabelAll();
+        }
+    }
+
+    /**
+     * Removes every song in a range in one pass. Whole chunks inside the range are dropped
+     * from the directory together, and only the two chunks at its ends are shifted.
+     * Runs in O(B + n / B).
+     * @param from 0-based index of the first song to remove
+     * @param to 0-based index after the last song to remove, from < to <= size
+     */
+    void removeRange(int from, int to) {
+        ownDirectory();
+        int c = chunkIndexOf(from);
+        int last = chunkIndexOf(to - 1);
+        int offset = from - starts[c];
+        int end = to - starts[last];
+        Chunk first = ownChunk(c);
+
+        if (c == last) {
+            cut(first, offset, end);
+        } else {
+            cut(first, offset, first.size);
+            cut(ownChunk(last), 0, end);
+            removeChunks(c + 1, last - c - 1);
+            compact(c + 1);
+        }
+        compact(c);
+        updateStarts(Math.max(c - 1, 0));
+    }
+
+    /**
+     * Spreads labels for a run of new songs evenly between two existing labels.
+     * @param prev the label before the run, ignored if hasPrev is false
+     * @param hasPrev whether there is a song before the run
+     * @param next the label after the run, ignored if hasNext is false
+     * @param hasNext whether there is a song after the run
+     * @param count the number of labels needed
+     * @return the labels in increasing order, or null if there is not enough room
+     */
+    private static long[] spreadLabels(long prev, boolean hasPrev, long next, boolean hasNext, int count) {
+        long first;
+        long step;
+        if (!hasPrev && !hasNext) {
+            first = -(long) (count / 2) * LABEL_GAP;
+            step = LABEL_GAP;
+        } else if (!hasNext && Long.divideUnsigned(Long.MAX_VALUE - prev, LABEL_GAP) > count) {
+            first = prev + LABEL_GAP;
+            step = LABEL_GAP;
+        } else if (!hasPrev && Long.divideUnsigned(next - Long.MIN_VALUE, LABEL_GAP) > count) {
+            first = next - LABEL_GAP * count;
+            step = LABEL_GAP;
+        } else {
+            // The unsigned difference cannot overflow because prev < next
+            step = Math.min(Long.divideUnsigned(next - prev, count + 1L), LABEL_GAP);
+            if (step == 0) {
+                return null;
+            }
+            first = prev + step;
+        }
+
+        long[] labels = new long[count];
+        for (int i = 0; i < count; i++) {
+            labels[i] = first + step * i;
+        }
+        return labels;
+    }
+
+    /**
+     * Appends songs to a chunk, opening new full chunks whenever the current one fills up.
+     * @param target the chunk to append to first, owned by this list
+     * @param added receives the new chunks that were opened
+     * @param addedCount the number of chunks already in added
+     * @param source the songs to append
+     * @param labels the labels of the songs to append, or null to leave them unset
+     * @param fingerprints the fingerprints of the songs to append
+     * @param exactPrints the exact fingerprints of the songs to append
+     * @param count the number of songs to append
+     * @return the number of chunks in added afterwards
+     */
+    private int fill(Chunk target, Chunk[] added, int addedCount,
+                     SongRecord[] source, long[] labels, long[] fingerprints, long[] exactPrints,
+                     int count) {
+        for (int copied = 0; copied < count; ) {
+            if (target.size == CHUNK_CAPACITY) {
+                target = new Chunk(owner);
+                added[addedCount++] = target;
+            }
+            int length = Math.min(CHUNK_CAPACITY - target.size, count - copied);
+            System.arraycopy(source, copied, target.songs, target.size, length);
+            if (labels != null) {
+                System.arraycopy(labels, copied, target.labels, target.size, length);
+            }
+            System.arraycopy(fingerprints, copied, target.fingerprints, target.size, length);
+            System.arraycopy(exactPrints, copied, target.exactPrints, target.size, length);
+            target.size += length;
+            copied += length;
+        }
+        return addedCount;
+    }
+
+    /**
+     * Removes the songs in slots [from, to) of a chunk this list owns.
+     * @param chunk the chunk to cut from
+     * @param from first slot to remove
+     * @param to slot after the last one to remove
+     */
+    private void cut(Chunk chunk, int from, int to) {
+        System.arraycopy(chunk.songs, to, chunk.songs, from, chunk.size - to);
+        System.arraycopy(chunk.labels, to, chunk.labels, from, chunk.size - to);
+        System.arraycopy(chunk.fingerprints, to, chunk.fingerprints, from, chunk.size - to);
+        System.arraycopy(chunk.exactPrints, to, chunk.exactPrints, from, chunk.size - to);
+        Arrays.fill(chunk.songs, chunk.size - (to - from), chunk.size, null);
+        chunk.size -= to - from;
+        chunk.updateEnds(from);
+    }
+
+    /**
+     * Drops chunk c if it became empty, or merges it with a neighbour when both are sparse,
+     * so the directory stays O(n / B) long. Chunk c must be owned by this list.
+     * @param c the directory slot of a chunk that just shrank
+     * @return the directory slot from which prefixes must be recomputed
+     */
+    private int compact(int c) {
+        Chunk chunk = chunks[c];
+        if (chunk.size == 0) {
+            removeChunk(c);
+        } else if (c + 1 < chunkCount && chunk.size + chunks[c + 1].size <= CHUNK_CAPACITY / 2) {
+            mergeWithNext(c);
+        } else if (c > 0 && chunk.size + chunks[c - 1].size <= CHUNK_CAPACITY / 2) {
+            c--;
+            ownChunk(c);
+            mergeWithNext(c);
+        }
+        return c;
+    }
+
+    /**
+     * Gives this list its own copy of the directory arrays if a snapshot shares them.
+     */
+    private void ownDirectory() {
+        if (directoryShared) {
+            chunks = Arrays.copyOf(chunks, Math.max(chunks.length, INITIAL_DIRECTORY));
+            starts = Arrays.copyOf(starts, chunks.length + 1);
+            times = Arrays.copyOf(times, chunks.length + 1);
+            hashes = Arrays.copyOf(hashes, chunks.length + 1);
+            exactHashes = Arrays.copyOf(exactHashes, chunks.length + 1);
+            directoryShared = false;
+        }
+    }
+
+    /**
+     * Replaces chunk c with a private copy unless this list already owns it.
+     * The directory must already be owned.
+     * @param c the directory slot of the chunk about to be modified
+     * @return the chunk now stored at slot c
+     */
+    private Chunk ownChunk(int c) {
+        if (chunks[c].owner != owner) {
+            chunks[c] = new Chunk(chunks[c], owner);
+        }
+        return chunks[c];
+    }
+
+    /**
+     * Finds the chunk holding the song at the given index.
+     * @param index 0-based index of a stored song
+     * @return the directory slot of the chunk holding index
+     */
+    private int chunkIndexOf(int index) {
+        int lo = 0;
+        int hi = chunkCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (starts[mid] <= index) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Gives the freshly inserted song at the given slot a label between its neighbours.
+     * @param c the directory slot of the chunk holding the new song
+     * @param offset the position of the new song within the chunk
+     */
+    private void assignLabel(int c, int offset) {
+        Chunk chunk = chunks[c];
+        boolean hasPrev = offset > 0 || c > 0;
+        boolean hasNext = offset + 1 < chunk.size || c + 1 < chunkCount;
+        long prev = offset > 0 ? chunk.labels[offset - 1]
+                  : c > 0 ? chunks[c - 1].labels[chunks[c - 1].size - 1] : Long.MIN_VALUE;
+        long next = offset + 1 < chunk.size ? chunk.labels[offset + 1]
+                  : c + 1 < chunkCount ? chunks[c + 1].labels[0] : Long.MAX_VALUE;
+
+        if (!hasPrev && !hasNext) {
+            chunk.labels[offset] = 0;
+        } else if (!hasNext && prev < Long.MAX_VALUE - LABEL_GAP) {
+            chunk.labels[offset] = prev + LABEL_GAP;
+        } else if (!hasPrev && next > Long.MIN_VALUE + LABEL_GAP) {
+            chunk.labels[offset] = next - LABEL_GAP;
+        } else if (Long.compareUnsigned(next - prev, 2) >= 0) {
+            // The unsigned difference cannot overflow because prev < next
+            chunk.labels[offset] = prev + ((next - prev) >>> 1);
+        } else if (!relabelChunk(c, offset)) {
+            relabelAll();
+        }
+    }
+
+    /**
+     * Spreads the labels of chunk c evenly between the labels of its neighbour chunks.
+     * @param c the directory slot of the chunk to relabel
+     * @param fresh the offset of a song that has no label yet and is not reported
+     * @return true if the chunk had enough room, false if the whole list must be relabeled
+     */
+    private boolean relabelChunk(int c, int fresh) {
+        Chunk chunk = chunks[c];
+        boolean hasLo = c > 0;
+        boolean hasHi = c + 1 < chunkCount;
+        if (!hasLo && !hasHi) {
+            return false;
+        }
+        long lo = hasLo ? chunks[c - 1].labels[chunks[c - 1].size - 1] : Long.MIN_VALUE;
+        long hi = hasHi ? chunks[c + 1].labels[0] : Long.MAX_VALUE;
+        long step = Long.divideUnsigned(hi - lo, chunk.size + 1);
+        if (step < 2) {
+            return false;
+        }
+        step = Math.min(step, LABEL_GAP);
+
+        // Report every old label first, a new label may equal an old one further along
+        for (int k = 0; k < chunk.size; k++) {
+            if (k != fresh && labelListener != null) {
+                labelListener.unlabeled(chunk.songs[k], chunk.labels[k]);
+            }
+        }
+        for (int k = 0; k < chunk.size; k++) {
+            // Anchor to the neighbour that exists so the open end keeps its room
+            chunk.labels[k] = hasLo ? lo + step * (k + 1) : hi - step * (chunk.size - k);
+            if (k != fresh && labelListener != null) {
+                labelListener.relabeled(chunk.songs[k], chunk.labels[k]);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gives every song a new label, LABEL_GAP apart and centred on zero.
+     */
+    private void relabelAll() {
+        long label = -(long) (size() / 2) * LABEL_GAP;
+        for (int c = 0; c < chunkCount; c++) {
+            Chunk chunk = ownChunk(c);
+            for (int k = 0; k < chunk.size; k++) {
+                chunk.labels[k] = label;
+                label += LABEL_GAP;
+            }
+        }
+        if (labelListener != null) {
+            labelListener.relabeledAll();
+        }
+    }
+
+    /**
+     * Recomputes the song, time and hash prefixes of every chunk after chunk c.
+     * @param c the directory slot of the last chunk whose prefixes are still valid
+     */
+    private void updateStarts(int c) {
+        for (int i = c; i < chunkCount; i++) {
+            starts[i + 1] = starts[i] + chunks[i].size;
+            times[i + 1] = times[i] + chunks[i].seconds();
+            hashes[i + 1] = hashes[i] * chunks[i].power + chunks[i].hash;
+            exactHashes[i + 1] = exactHashes[i] * chunks[i].power + chunks[i].exactHash;
+        }
+    }
+
+    /**
+     * Moves the upper half of chunk c into a new chunk placed directly after it.
+     * @param c the directory slot of a full chunk
+     */
+    private void splitChunk(int c) {
+        Chunk left = chunks[c];
+        Chunk right = new Chunk(owner);
+        int half = left.size / 2;
+
+        right.size = left.size - half;
+        System.arraycopy(left.songs, half, right.songs, 0, right.size);
+        System.arraycopy(left.labels, half, right.labels, 0, right.size);
+        System.arraycopy(left.fingerprints, half, right.fingerprints, 0, right.size);
+        System.arraycopy(left.exactPrints, half, right.exactPrints, 0, right.size);
+        Arrays.fill(left.songs, half, left.size, null);
+        left.size = half;
+        // The running totals of the left half are still valid, only its hash changes
+        left.updateEnds(half);
+        right.updateEnds(0);
+
+        // The prefixes of the new chunk are recomputed by the caller
+        insertChunk(c + 1, right);
+    }
+
+    /**
+     * Appends the songs of chunk c + 1 to chunk c and drops chunk c + 1.
+     * @param c the directory slot of the chunk that absorbs its successor
+     */
+    private void mergeWithNext(int c) {
+        Chunk left = chunks[c];
+        Chunk right = chunks[c + 1];
+        System.arraycopy(right.songs, 0, left.songs, left.size, right.size);
+        System.arraycopy(right.labels, 0, left.labels, left.size, right.size);
+        System.arraycopy(right.fingerprints, 0, left.fingerprints, left.size, right.size);
+        System.arraycopy(right.exactPrints, 0, left.exactPrints, left.size, right.size);
+        int from = left.size;
+        left.size += right.size;
+        left.updateEnds(from);
+        removeChunk(c + 1);
+    }
+
+    /**
+     * Places a chunk into the directory at slot c, growing the directory when needed.
+     * @param c the directory slot for the new chunk
+     * @param chunk the chunk to insert
+     */
+    private void insertChunk(int c, Chunk chunk) {
+        insertChunks(c, new Chunk[] {chunk}, 1);
+    }
+
+    /**
+     * Places several chunks into the directory starting at slot c with a single shift.
+     * The prefixes of the new chunks are left for the caller to recompute.
+     * @param c the directory slot for the first new chunk
+     * @param added the chunks to insert, in order
+     * @param count the number of chunks of added to insert
+     */
+    private void insertChunks(int c, Chunk[] added, int count) {
+        if (chunkCount + count > chunks.length) {
+            int capacity = Math.max(chunks.length * 2, chunkCount + count);
+            chunks = Arrays.copyOf(chunks, capacity);
+            starts = Arrays.copyOf(starts, capacity + 1);
+            times = Arrays.copyOf(times, capacity + 1);
+            hashes = Arrays.copyOf(hashes, capacity + 1);
+            exactHashes = Arrays.copyOf(exactHashes, capacity + 1);
+        }
+        System.arraycopy(chunks, c, chunks, c + count, chunkCount - c);
+        System.arraycopy(starts, c, starts, c + count, chunkCount - c + 1);
+        System.arraycopy(times, c, times, c + count, chunkCount - c + 1);
+        System.arraycopy(hashes, c, hashes, c + count, chunkCount - c + 1);
+        System.arraycopy(exactHashes, c, exactHashes, c + count, chunkCount - c + 1);
+        System.arraycopy(added, 0, chunks, c, count);
+        chunkCount += count;
+    }
+
+    /**
+     * Removes the chunk at directory slot c.
+     * @param c the directory slot of the chunk to drop
+     */
+    private void removeChunk(int c) {
+        removeChunks(c, 1);
+    }
+
+    /**
+     * Removes count consecutive chunks starting at directory slot c with a single shift.
+     * @param c the directory slot of the first chunk to drop
+     * @param count the number of chunks to drop
+     */
+    private void removeChunks(int c, int count) {
+        // starts[c] stays valid, the callers recompute the entries after it
+        System.arraycopy(chunks, c + count, chunks, c, chunkCount - c - count);
+        System.arraycopy(starts, c + count + 1, starts, c + 1, chunkCount - c - count);
+        System.arraycopy(times, c + count + 1, times, c + 1, chunkCount - c - count);
+        System.arraycopy(hashes, c + count + 1, hashes, c + 1, chunkCount - c - count);
+        System.arraycopy(exactHashes, c + count + 1, exactHashes, c + 1, chunkCount - c - count);
+        Arrays.fill(chunks, chunkCount - count, chunkCount, null);
+        chunkCount -= count;
+    }
+}
@@ -0,0 +1,185 @@
+import java.util.Arrays;
+
+/**
+ * CompactSongStore is a columnar alternative to Playlist for very large song libraries.
+ * Instead of one SongRecord object per song, each song is a row across three parallel
+ * int arrays: the total length in seconds, a title id and an artist id. Titles and
+ * artists are dictionary-encoded into shared StringPools, so repeated names are stored
+ * once and no per-song object headers or pointers are kept.
+ *
+ * SongRecord objects are only created when a caller asks for one with getSong.
+ * Inserts and removals move the tail of each column with System.arraycopy, so this store
+ * suits libraries that are mostly appended to and read. Positions are 1-based like Playlist.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+public class CompactSongStore {
+
+    /** Length of each song in total seconds */
+    private int[] lengths;
+
+    /** Pool id of each song's title */
+    private int[] titleIds;
+
+    /** Pool id of each song's artist */
+    private int[] artistIds;
+
+    /** Number of songs currently stored */
+    private int currentSize;
+
+    /** Shared dictionary of song titles */
+    private StringPool titles;
+
+    /** Shared dictionary of artist names */
+    private StringPool artists;
+
+    /**
+     * Constructs an empty CompactSongStore.
+     */
+    public CompactSongStore() {
+        lengths = new int[16];
+        titleIds = new int[16];
+        artistIds = new int[16];
+        currentSize = 0;
+        titles = new StringPool();
+        artists = new StringPool();
+    }
+
+    /**
+     * Builds a CompactSongStore holding the same songs as a Playlist, in the same order.
+     * @param playlist the Playlist to copy
+     * @return a new CompactSongStore with one row per song of playlist
+     */
+    public static CompactSongStore of(Playlist playlist) {
+        CompactSongStore store = new CompactSongStore();
+        for (int i = 1; i <= playlist.size(); i++) {
+            store.addSong(playlist.getSong(i), i);
+        }
+        return store;
+    }
+
+    /**
+     * Determines the number of songs in this store.
+     * @return the number of songs
+     */
+    public int size() {
+        return currentSize;
+    }
+
+    /**
+     * Adds a song at the specified position, encoding its fields into the columns.
+     * @param song the song to add, it is not retained by the store
+     * @param position the position to insert at (1-based)
+     * @throws IllegalArgumentException if position is not within the valid range
+     */
+    public void addSong(SongRecord song, int position) throws IllegalArgumentException {
+        if (position < 1 || position > currentSize + 1) {
+            throw new IllegalArgumentException("Invalid position for adding the new song");
+        }
+
+        if (currentSize == lengths.length) {
+            int capacity = lengths.length * 2;
+            lengths = Arrays.copyOf(lengths, capacity);
+            titleIds = Arrays.copyOf(titleIds, capacity);
+            artistIds = Arrays.copyOf(artistIds, capacity);
+        }
+
+        int index = position - 1;
+        int moved = currentSize - index;
+        System.arraycopy(lengths, index, lengths, index + 1, moved);
+        System.arraycopy(titleIds, index, titleIds, index + 1, moved);
+        System.arraycopy(artistIds, index, artistIds, index + 1, moved);
+
+        lengths[index] = song.getMinutes() * 60 + song.getSeconds();
+        titleIds[index] = titles.intern(song.getTitle());
+        artistIds[index] = artists.intern(song.getArtist());
+        currentSize++;
+    }
+
+    /**
+     * Removes the song at the specified position.
+     * @param position the position of the song to remove (1-based)
+     * @throws IllegalArgumentException if position is not within the valid range
+     */
+    public void removeSong(int position) throws IllegalArgumentException {
+        checkPosition(position);
+
+        int index = position - 1;
+        int moved = currentSize - index - 1;
+        System.arraycopy(lengths, index + 1, lengths, index, moved);
+        System.arraycopy(titleIds, index + 1, titleIds, index, moved);
+        System.arraycopy(artistIds, index + 1, artistIds, index, moved);
+        currentSize--;
+    }
+
+    /**
+     * Materializes the song at the specified position as a new SongRecord.
+     * @param position the position of the song (1-based)
+     * @return a new SongRecord with the stored title, artist and length
+     * @throws IllegalArgumentException if position is not within the valid range
+     */
+    public SongRecord getSong(int position) throws IllegalArgumentException {
+        checkPosition(position);
+
+        int index = position - 1;
+        SongRecord song = new SongRecord();
+        song.setTitle(titles.get(titleIds[index]));
+        song.setArtist(artists.get(artistIds[index]));
+        song.setMinutes(lengths[index] / 60);
+        song.setSeconds(lengths[index] % 60);
+        return song;
+    }
+
+    /**
+     * Gets the title of the song at the specified position without creating a SongRecord.
+     * @param position the position of the song (1-based)
+     * @return the title of the song
+     * @throws IllegalArgumentException if position is not within the valid range
+     */
+    public String getTitle(int position) throws IllegalArgumentException {
+        checkPosition(position);
+        return titles.get(titleIds[position - 1]);
+    }
+
+    /**
+     * Gets the artist of the song at the specified position without creating a SongRecord.
+     * @param position the position of the song (1-based)
+     * @return the artist of the song
+     * @throws IllegalArgumentException if position is not within the valid range
+     */
+    public String getArtist(int position) throws IllegalArgumentException {
+        checkPosition(position);
+        return artists.get(artistIds[position - 1]);
+    }
+
+    /**
+     * Gets the length of the song at the specified position.
+     * @param position the position of the song (1-based)
+     * @return the length of the song in total seconds
+     * @throws IllegalArgumentException if position is not within the valid range
+     */
+    public int getLength(int position) throws IllegalArgumentException {
+        checkPosition(position);
+        return lengths[position - 1];
+    }
+
+    /**
+     * Estimates the heap retained by this store's columns and string pools.
+     * @return the approximate number of bytes retained by this store
+     */
+    public long footprintBytes() {
+        return 12L * lengths.length + titles.footprintBytes() + artists.footprintBytes();
+    }
+
+    /**
+     * Checks that a position refers to a stored song.
+     * @param position the position to check (1-based)
+     * @throws IllegalArgumentException if position is not within the valid range
+     */
+    private void checkPosition(int position) throws IllegalArgumentException {
+        if (position < 1 || position > currentSize) {
+            throw new IllegalArgumentException("Position must be between 1 and " + currentSize);
+        }
+    }
+}
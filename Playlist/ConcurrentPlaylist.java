@@ -0,0 +1,153 @@
+import java.util.Collection;
+
+/**
+ * ConcurrentPlaylist is a thread-safe Playlist for many reader threads and a few editors.
+ *
+ * Editors are serialized on a lock and apply their change to a private working Playlist.
+ * After every edit the working Playlist is cloned, which is O(1) because clones share
+ * their storage, and the clone is published through a volatile field. Readers only ever
+ * look at the most recently published clone, which nobody modifies, so reads never take
+ * a lock, never block behind an editor and never see a half-finished edit.
+ *
+ * Each read method looks at whichever version is published when it is called. A caller
+ * that needs several reads to agree with each other, for example size followed by getSong,
+ * should take a snapshot and read from that instead.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+public class ConcurrentPlaylist {
+
+    /** Guards the working Playlist, held by editors only */
+    private final Object writeLock = new Object();
+
+    /** The Playlist editors modify, only touched while holding writeLock */
+    private final Playlist working;
+
+    /** The latest published version, never modified after it is published */
+    private volatile Playlist published;
+
+    /**
+     * Constructs an empty ConcurrentPlaylist.
+     */
+    public ConcurrentPlaylist() {
+        working = new Playlist();
+        published = (Playlist) working.clone();
+    }
+
+    /**
+     * Determines the number of SongRecords in the latest published version.
+     * @return The number of SongRecords in this Playlist.
+     */
+    public int size() {
+        return published.size();
+    }
+
+    /**
+     * Get the SongRecord at the given position in the latest published version.
+     * @param position position of the SongRecord to retrieve (1-based)
+     * @return The SongRecord at the specified position.
+     * @throws IllegalArgumentException if position is not within the valid range
+     */
+    public SongRecord getSong(int position) throws IllegalArgumentException {
+        return published.getSong(position);
+    }
+
+    /**
+     * Gets the total length of the latest published version.
+     * @return The combined length of every SongRecord in seconds.
+     */
+    public long totalDuration() {
+        return published.totalDuration();
+    }
+
+    /**
+     * Gets the SongRecord playing a given number of seconds into the latest published version.
+     * @param elapsedSeconds seconds since the first SongRecord started playing
+     * @return The SongRecord playing at elapsedSeconds.
+     * @throws IllegalArgumentException if elapsedSeconds is negative or not before totalDuration()
+     */
+    public SongRecord songAt(long elapsedSeconds) throws IllegalArgumentException {
+        return published.songAt(elapsedSeconds);
+    }
+
+    /**
+     * Gets a private copy of the latest published version without blocking.
+     * The copy may be read or edited freely and is not affected by later edits.
+     * @return A Playlist holding the same SongRecords as the latest published version.
+     */
+    public Playlist snapshot() {
+        return (Playlist) published.clone();
+    }
+
+    /**
+     * Add a new SongRecord at the specified position and publish the result.
+     * @param song the new SongRecord object to add
+     * @param position the position where the song will be inserted (1-based)
+     * @throws IllegalArgumentException if position is not within the valid range
+     * @throws FullPlaylistException if the Playlist already holds Integer.MAX_VALUE songs
+     */
+    public void addSong(SongRecord song, int position) throws IllegalArgumentException, FullPlaylistException {
+        synchronized (writeLock) {
+            working.addSong(song, position);
+            published = (Playlist) working.clone();
+        }
+    }
+
+    /**
+     * Add a collection of SongRecords, the first at the specified position, and publish
+     * the result once for the whole batch.
+     * @param newSongs the SongRecord objects to add, in order
+     * @param position the position where the first song will be inserted (1-based)
+     * @throws IllegalArgumentException if position is not within the valid range
+     * @throws FullPlaylistException if the Playlist would hold more than Integer.MAX_VALUE songs
+     */
+    public void addAll(Collection<SongRecord> newSongs, int position) throws IllegalArgumentException, FullPlaylistException {
+        synchronized (writeLock) {
+            working.addAll(newSongs, position);
+            published = (Playlist) working.clone();
+        }
+    }
+
+    /**
+     * Remove the SongRecord at the specified position and publish the result.
+     * @param position the position of the song to remove (1-based)
+     * @throws IllegalArgumentException if position is not within the valid range
+     */
+    public void removeSong(int position) throws IllegalArgumentException {
+        synchronized (writeLock) {
+            working.removeSong(position);
+            published = (Playlist) working.clone();
+        }
+    }
+
+    /**
+     * Remove the SongRecords from fromPosition through toPosition, inclusive, and publish
+     * the result.
+     * @param fromPosition the position of the first song to remove (1-based)
+     * @param toPosition the position of the last song to remove (1-based)
+     * @throws IllegalArgumentException if the range is empty or not within the valid range
+     */
+    public void removeRange(int fromPosition, int toPosition) throws IllegalArgumentException {
+        synchronized (writeLock) {
+            working.removeRange(fromPosition, toPosition);
+            published = (Playlist) working.clone();
+        }
+    }
+
+    /**
+     * Move the SongRecords from fromPosition through toPosition, inclusive, so the first of
+     * them ends up at newPosition, and publish the result.
+     * @param fromPosition the position of the first song to move (1-based)
+     * @param toPosition the position of the last song to move (1-based)
+     * @param newPosition the position the first moved song will have afterwards (1-based)
+     * @throws IllegalArgumentException if the range is empty or either position is not within
+     *         the valid range
+     */
+    public void moveRange(int fromPosition, int toPosition, int newPosition) throws IllegalArgumentException {
+        synchronized (writeLock) {
+            working.moveRange(fromPosition, toPosition, newPosition);
+            published = (Playlist) working.clone();
+        }
+    }
+}
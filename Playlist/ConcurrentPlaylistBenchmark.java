@@ -0,0 +1,133 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ConcurrentPlaylistBenchmark measures how the read throughput of ConcurrentPlaylist grows
+ * with the number of reader threads while an editor thread is busy.
+ *
+ * It runs 1, 2, 4, ... reader threads up to twice the number of available processors, each
+ * calling size and getSong in a loop, and prints reads per second. The consistency of
+ * snapshots under concurrent edits is checked by ConcurrentPlaylistTest instead.
+ *
+ * Usage: java ConcurrentPlaylistBenchmark [songs] [millisPerRun]
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+public class ConcurrentPlaylistBenchmark {
+
+    /** Length of every generated song in seconds */
+    private static final int SONG_SECONDS = 180;
+
+    /**
+     * Runs the throughput benchmark.
+     * @param args optional playlist size (default 100000) and run length in ms (default 1000)
+     * @throws Exception if a worker thread is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        int songs = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 1_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        ConcurrentPlaylist playlist = new ConcurrentPlaylist();
+        for (int i = 0; i < songs; i++) {
+            playlist.addSong(song(i), i + 1);
+        }
+
+        System.out.println("Available processors: " + cores);
+
+        System.out.println("Readers | Reads/sec      | Editor ops/sec");
+        System.out.println("--------|----------------|---------------");
+        for (int readers = 1; readers <= cores * 2; readers *= 2) {
+            long[] result = throughput(playlist, songs, readers, millis);
+            System.out.printf("%-8d%,-17d%,d%n", readers,
+                              result[0] * 1000 / millis, result[1] * 1000 / millis);
+        }
+    }
+
+    /**
+     * Measures reads completed by a number of readers while one editor keeps editing.
+     * @param playlist a playlist holding at least songs songs
+     * @param songs the number of songs readers may address
+     * @param readers the number of reader threads
+     * @param millis how long to run
+     * @return the total reads and the total editor operations completed
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    private static long[] throughput(ConcurrentPlaylist playlist, int songs, int readers, long millis)
+            throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        AtomicLong edits = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+
+        threads.add(new Thread(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long done = 0;
+            while (running.get()) {
+                try {
+                    int position = 1 + random.nextInt(songs);
+                    playlist.addSong(playlist.getSong(position), position);
+                    playlist.removeSong(position);
+                    done += 2;
+                } catch (FullPlaylistException e) {
+                    break;
+                }
+            }
+            edits.addAndGet(done);
+        }));
+
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long done = 0;
+                long checksum = 0;
+                while (running.get()) {
+                    checksum += playlist.size();
+                    checksum += playlist.getSong(1 + random.nextInt(songs)).getSeconds();
+                    done += 2;
+                }
+                reads.addAndGet(done + (checksum == 42 ? 1 : 0));
+            }));
+        }
+
+        runFor(threads, running, millis);
+        return new long[] {reads.get(), edits.get()};
+    }
+
+    /**
+     * Starts the threads, lets them run, then stops them and waits for them to finish.
+     * @param threads the worker threads
+     * @param running the flag the workers poll
+     * @param millis how long to run
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static void runFor(List<Thread> threads, AtomicBoolean running, long millis)
+            throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        Thread.sleep(millis);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Generates a numbered song.
+     * @param number the sequence number of the song
+     * @return a new SongRecord three minutes long
+     */
+    private static SongRecord song(int number) {
+        SongRecord song = new SongRecord();
+        song.setTitle(Integer.toString(number));
+        song.setArtist("Artist " + (number % 100));
+        song.setMinutes(SONG_SECONDS / 60);
+        song.setSeconds(SONG_SECONDS % 60);
+        return song;
+    }
+}
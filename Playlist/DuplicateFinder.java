@@ -0,0 +1,218 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * DuplicateFinder reports the songs that occur more than once within or across Playlists.
+ *
+ * Two songs are duplicates when they have the same SongFingerprint, that is the same
+ * title, artist and length after ignoring case and extra whitespace. The fingerprint every
+ * Playlist already caches for its songs is threaded onto a chain per fingerprint, using an
+ * open-addressing table of primitive longs and parallel int arrays rather than a map of
+ * boxed keys, so finding the duplicates among n songs in total is a single O(n) pass.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+public class DuplicateFinder {
+
+    /** Number of songs copied out of a Playlist at a time */
+    private static final int SCAN_BLOCK = 4096;
+
+    /** Most songs searched at once, so the table fits in one array and stays at most half full */
+    private static final int MAX_SONGS = 1 << 28;
+
+    /**
+     * A set of songs sharing one fingerprint, listed in the order of the Playlists passed
+     * to find and, within a Playlist, by position.
+     */
+    public static class DuplicateGroup {
+
+        /** The fingerprint shared by every song of the group */
+        private final long fingerprint;
+
+        /** Index into the Playlists passed to find of each occurrence */
+        private final int[] playlists;
+
+        /** Position (1-based) within its Playlist of each occurrence */
+        private final int[] positions;
+
+        /** The SongRecord of each occurrence */
+        private final SongRecord[] songs;
+
+        /**
+         * Constructs a DuplicateGroup.
+         * @param fingerprint the shared fingerprint
+         * @param playlists the Playlist index of each occurrence
+         * @param positions the position of each occurrence
+         * @param songs the song of each occurrence
+         */
+        DuplicateGroup(long fingerprint, int[] playlists, int[] positions, SongRecord[] songs) {
+            this.fingerprint = fingerprint;
+            this.playlists = playlists;
+            this.positions = positions;
+            this.songs = songs;
+        }
+
+        /**
+         * Returns the fingerprint shared by the songs of this group.
+         * @return the fingerprint
+         */
+        public long getFingerprint() {
+            return fingerprint;
+        }
+
+        /**
+         * Returns the number of occurrences in this group, always at least 2.
+         * @return the group size
+         */
+        public int size() {
+            return songs.length;
+        }
+
+        /**
+         * Returns which Playlist an occurrence is in.
+         * @param i index of the occurrence, from 0 to size() - 1
+         * @return the index of its Playlist in the arguments passed to find
+         */
+        public int getPlaylistIndex(int i) {
+            return playlists[i];
+        }
+
+        /**
+         * Returns where an occurrence is in its Playlist.
+         * @param i index of the occurrence, from 0 to size() - 1
+         * @return its position (1-based)
+         */
+        public int getPosition(int i) {
+            return positions[i];
+        }
+
+        /**
+         * Returns the SongRecord of an occurrence.
+         * @param i index of the occurrence, from 0 to size() - 1
+         * @return the song
+         */
+        public SongRecord getSong(int i) {
+            return songs[i];
+        }
+
+        /**
+         * Returns a short description listing every occurrence.
+         * @return the formatted group
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(songs[0].getTitle()).append(" by ").append(songs[0].getArtist()).append(':');
+            for (int i = 0; i < songs.length; i++) {
+                sb.append(" [playlist ").append(playlists[i] + 1)
+                  .append(", position ").append(positions[i]).append(']');
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Finds every group of duplicate songs within and across the given Playlists.
+     * @param playlists the Playlists to search
+     * @return the duplicate groups, ordered by where each group first occurs
+     * @throws IllegalArgumentException if a Playlist is null or the Playlists together hold
+     *         more than 2^28 songs
+     */
+    public static List<DuplicateGroup> find(Playlist... playlists) throws IllegalArgumentException {
+        long total = 0;
+        for (Playlist playlist : playlists) {
+            if (playlist == null) {
+                throw new IllegalArgumentException("Playlists cannot be null");
+            }
+            total += playlist.size();
+        }
+        if (total > MAX_SONGS) {
+            throw new IllegalArgumentException("Too many songs to search at once");
+        }
+        int n = (int) total;
+
+        // One entry per song, chained per fingerprint; chains are built back to front
+        long[] fingerprints = new long[n];
+        int[] owner = new int[n];
+        int[] position = new int[n];
+        SongRecord[] songs = new SongRecord[n];
+        int[] next = new int[n];
+        int[] chainSize = new int[n];
+
+        int capacity = Integer.highestOneBit(Math.max(1, n)) * 4;
+        long[] keys = new long[capacity];
+        int[] heads = new int[capacity];
+        Arrays.fill(heads, -1);
+        int mask = capacity - 1;
+
+        SongRecord[] block = new SongRecord[SCAN_BLOCK];
+        long[] printBlock = new long[SCAN_BLOCK];
+        int entry = 0;
+        for (int p = 0; p < playlists.length; p++) {
+            int size = playlists[p].size();
+            for (int from = 0; from < size; from += SCAN_BLOCK) {
+                int to = Math.min(size, from + SCAN_BLOCK);
+                playlists[p].copySongs(from, to, block);
+                playlists[p].copyFingerprints(from, to, printBlock);
+                for (int i = from; i < to; i++, entry++) {
+                    long fingerprint = printBlock[i - from];
+                    fingerprints[entry] = fingerprint;
+                    owner[entry] = p;
+                    position[entry] = i + 1;
+                    songs[entry] = block[i - from];
+
+                    int slot = spread(fingerprint) & mask;
+                    while (heads[slot] >= 0 && keys[slot] != fingerprint) {
+                        slot = (slot + 1) & mask;
+                    }
+                    if (heads[slot] < 0) {
+                        keys[slot] = fingerprint;
+                        next[entry] = -1;
+                        chainSize[entry] = 1;
+                    } else {
+                        // The head of a chain is always its latest entry
+                        next[entry] = heads[slot];
+                        chainSize[entry] = chainSize[heads[slot]] + 1;
+                    }
+                    heads[slot] = entry;
+                }
+            }
+        }
+
+        // Each chain is reported at its first entry; find the head again to read the chain
+        List<DuplicateGroup> groups = new ArrayList<>();
+        for (int e = 0; e < n; e++) {
+            int slot = spread(fingerprints[e]) & mask;
+            while (keys[slot] != fingerprints[e] || heads[slot] < 0) {
+                slot = (slot + 1) & mask;
+            }
+            int head = heads[slot];
+            int count = chainSize[head];
+            if (count < 2 || next[e] >= 0) {
+                continue;
+            }
+
+            int[] groupPlaylists = new int[count];
+            int[] groupPositions = new int[count];
+            SongRecord[] groupSongs = new SongRecord[count];
+            for (int k = count - 1, c = head; k >= 0; k--, c = next[c]) {
+                groupPlaylists[k] = owner[c];
+                groupPositions[k] = position[c];
+                groupSongs[k] = songs[c];
+            }
+            groups.add(new DuplicateGroup(fingerprints[e], groupPlaylists, groupPositions, groupSongs));
+        }
+        return groups;
+    }
+
+    /**
+     * Folds the high bits of a fingerprint into the low bits used to pick a slot.
+     * @param fingerprint a song fingerprint
+     * @return the slot hash
+     */
+    private static int spread(long fingerprint) {
+        return (int) (fingerprint ^ (fingerprint >>> 32));
+    }
+}
@@ -0,0 +1,333 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PlayCounter records how often songs are played, from any number of threads at once, and
+ * reports the most played songs in memory that does not grow with the number of songs.
+ *
+ * Play counts are kept in a Count-Min sketch: depth rows of width counters each, where a
+ * play of a song adds to one counter per row, chosen by hashing its SongFingerprint. A
+ * song's count is estimated as the smallest of its counters, which is never below the true
+ * count and exceeds it by at most 2 / width of all plays with probability 1 - 2^-depth.
+ * Every counter is a LongAdder, which spreads concurrent increments over striped cells, so
+ * recording a play takes no lock.
+ *
+ * The most played songs are tracked with the Space-Saving algorithm: a summary of twice
+ * topK candidates in a min-heap by count, where a song not yet in the summary replaces the
+ * least played candidate once its estimate passes that candidate's count. Only plays whose
+ * estimate reaches the smallest count in the summary take the summary's lock, so the long
+ * tail of rarely played songs never contends for it.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+public class PlayCounter {
+
+    /** Default number of counters per sketch row */
+    private static final int DEFAULT_WIDTH = 1 << 14;
+
+    /** Default number of sketch rows */
+    private static final int DEFAULT_DEPTH = 4;
+
+    /** Odd multipliers giving each sketch row its own hash of a fingerprint */
+    private static final long[] ROW_SEEDS = {
+        0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+        0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x94D049BB133111EBL, 0xBF58476D1CE4E5B9L
+    };
+
+    /**
+     * A song and how often it has been played, as reported by topTracks.
+     */
+    public static class TopTrack {
+
+        /** The song */
+        private final SongRecord song;
+
+        /** Estimated number of plays */
+        private final long plays;
+
+        /**
+         * Constructs a TopTrack.
+         * @param song the song
+         * @param plays its estimated number of plays
+         */
+        TopTrack(SongRecord song, long plays) {
+            this.song = song;
+            this.plays = plays;
+        }
+
+        /**
+         * Returns the song.
+         * @return the first SongRecord recorded for this track
+         */
+        public SongRecord getSong() {
+            return song;
+        }
+
+        /**
+         * Returns the estimated number of plays, which is never below the true number.
+         * @return the play count
+         */
+        public long getPlays() {
+            return plays;
+        }
+
+        /**
+         * Returns the song and its play count.
+         * @return the formatted track
+         */
+        @Override
+        public String toString() {
+            return song.getTitle() + " by " + song.getArtist() + ": " + plays + " play(s)";
+        }
+    }
+
+    /** Number of most played songs reported */
+    private final int topK;
+
+    /** Number of counters per sketch row, a power of two */
+    private final int width;
+
+    /** Number of sketch rows */
+    private final int depth;
+
+    /** The sketch, row by row */
+    private final LongAdder[] counters;
+
+    /** Total number of plays recorded */
+    private final LongAdder total = new LongAdder();
+
+    /** Smallest estimate that can change the summary; plays below it skip the lock */
+    private volatile long threshold;
+
+    /** Fingerprint of each summary candidate, in heap order */
+    private final long[] keys;
+
+    /** Count of each summary candidate, a min-heap */
+    private final long[] counts;
+
+    /** SongRecord of each summary candidate */
+    private final SongRecord[] songs;
+
+    /** Number of summary candidates */
+    private int size;
+
+    /** Heap slot of each candidate fingerprint */
+    private final HashMap<Long, Integer> slots = new HashMap<>();
+
+    /**
+     * Constructs a PlayCounter with a sketch of 4 rows of 16384 counters.
+     * @param topK the number of most played songs to report
+     * @throws IllegalArgumentException if topK is less than 1
+     */
+    public PlayCounter(int topK) throws IllegalArgumentException {
+        this(topK, DEFAULT_WIDTH, DEFAULT_DEPTH);
+    }
+
+    /**
+     * Constructs a PlayCounter.
+     * @param topK the number of most played songs to report
+     * @param width the number of counters per sketch row, rounded up to a power of two
+     * @param depth the number of sketch rows, from 1 to 8
+     * @throws IllegalArgumentException if topK is less than 1, width is less than 1 or
+     *         more than 2^24, or depth is not between 1 and 8
+     */
+    public PlayCounter(int topK, int width, int depth) throws IllegalArgumentException {
+        if (topK < 1 || topK > (1 << 20)) {
+            throw new IllegalArgumentException("Top K must be between 1 and " + (1 << 20));
+        }
+        if (width < 1 || width > (1 << 24) || depth < 1 || depth > ROW_SEEDS.length) {
+            throw new IllegalArgumentException("Invalid sketch size");
+        }
+        this.topK = topK;
+        this.width = Integer.highestOneBit(width) == width ? width : Integer.highestOneBit(width) << 1;
+        this.depth = depth;
+        counters = new LongAdder[this.width * depth];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        keys = new long[topK * 2];
+        counts = new long[topK * 2];
+        songs = new SongRecord[topK * 2];
+    }
+
+    /**
+     * Records one play of a song. Safe to call from any thread.
+     * @param song the song played
+     * @throws IllegalArgumentException if song is null
+     */
+    public void recordPlay(SongRecord song) throws IllegalArgumentException {
+        recordPlays(song, 1);
+    }
+
+    /**
+     * Records several plays of a song at once. Safe to call from any thread.
+     * @param song the song played
+     * @param plays the number of plays
+     * @throws IllegalArgumentException if song is null or plays is less than 1
+     */
+    public void recordPlays(SongRecord song, long plays) throws IllegalArgumentException {
+        if (song == null || plays < 1) {
+            throw new IllegalArgumentException("A play needs a song and a positive count");
+        }
+        long fingerprint = SongFingerprint.of(song);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            LongAdder counter = counters[cell(row, fingerprint)];
+            counter.add(plays);
+            estimate = Math.min(estimate, counter.sum());
+        }
+        total.add(plays);
+
+        if (estimate >= threshold) {
+            synchronized (slots) {
+                offer(fingerprint, song, estimate);
+            }
+        }
+    }
+
+    /**
+     * Estimates how often a song has been played.
+     * @param song the song
+     * @return an estimate that is never below the true number of plays
+     */
+    public long estimatePlays(SongRecord song) {
+        return song == null ? 0 : estimate(SongFingerprint.of(song));
+    }
+
+    /**
+     * Determines the number of plays recorded for all songs together.
+     * @return the total play count
+     */
+    public long totalPlays() {
+        return total.sum();
+    }
+
+    /**
+     * Reports the most played songs, most played first.
+     * @return up to topK tracks with their estimated play counts
+     */
+    public List<TopTrack> topTracks() {
+        List<TopTrack> tracks = new ArrayList<>();
+        synchronized (slots) {
+            for (int i = 0; i < size; i++) {
+                tracks.add(new TopTrack(songs[i], estimate(keys[i])));
+            }
+        }
+        tracks.sort((a, b) -> Long.compare(b.plays, a.plays));
+        return tracks.size() > topK ? new ArrayList<>(tracks.subList(0, topK)) : tracks;
+    }
+
+    /**
+     * Estimates the play count of a fingerprint as its smallest counter.
+     * @param fingerprint the song fingerprint
+     * @return the estimated play count
+     */
+    private long estimate(long fingerprint) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[cell(row, fingerprint)].sum());
+        }
+        return estimate;
+    }
+
+    /**
+     * Finds the counter of a fingerprint in a sketch row.
+     * @param row the row
+     * @param fingerprint the song fingerprint
+     * @return the index of the counter in counters
+     */
+    private int cell(int row, long fingerprint) {
+        int column = (int) ((fingerprint * ROW_SEEDS[row]) >>> (64 - Integer.numberOfTrailingZeros(width)));
+        return row * width + (width == 1 ? 0 : column);
+    }
+
+    /**
+     * Updates the summary with a song's new estimate. Called with the summary lock held.
+     * @param fingerprint the song fingerprint
+     * @param song the song
+     * @param estimate its estimated play count
+     */
+    private void offer(long fingerprint, SongRecord song, long estimate) {
+        Integer slot = slots.get(fingerprint);
+        if (slot != null) {
+            if (estimate > counts[slot]) {
+                counts[slot] = estimate;
+                siftDown(slot);
+            }
+        } else if (size < counts.length) {
+            keys[size] = fingerprint;
+            counts[size] = estimate;
+            songs[size] = song;
+            slots.put(fingerprint, size);
+            siftUp(size++);
+        } else if (estimate > counts[0]) {
+            // Space-Saving: the newcomer takes over the least played candidate's slot
+            slots.remove(keys[0]);
+            keys[0] = fingerprint;
+            counts[0] = estimate;
+            songs[0] = song;
+            slots.put(fingerprint, 0);
+            siftDown(0);
+        }
+        threshold = size < counts.length ? 0 : counts[0] + 1;
+    }
+
+    /**
+     * Moves a candidate towards the root of the heap while it is smaller than its parent.
+     * @param slot the candidate's heap slot
+     */
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (counts[parent] <= counts[slot]) {
+                break;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    /**
+     * Moves a candidate away from the root of the heap while a child is smaller.
+     * @param slot the candidate's heap slot
+     */
+    private void siftDown(int slot) {
+        while (true) {
+            int smallest = slot;
+            int left = 2 * slot + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (left + 1 < size && counts[left + 1] < counts[smallest]) {
+                smallest = left + 1;
+            }
+            if (smallest == slot) {
+                return;
+            }
+            swap(slot, smallest);
+            slot = smallest;
+        }
+    }
+
+    /**
+     * Exchanges two heap slots and updates their entries in the slot map.
+     * @param a the first slot
+     * @param b the second slot
+     */
+    private void swap(int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        long count = counts[a];
+        counts[a] = counts[b];
+        counts[b] = count;
+        SongRecord song = songs[a];
+        songs[a] = songs[b];
+        songs[b] = song;
+        slots.put(keys[a], a);
+        slots.put(keys[b], b);
+    }
+}
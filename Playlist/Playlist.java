@@ -1,46 +1,152 @@
-public class Playlist {
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class Playlist implements Iterable<SongRecord> {
     
-    /** Maximum number of songs allowed in the playlist */
-    private static final int MAX_SONGS = 50;
+    /** Chunked storage holding the SongRecord objects in playlist order */
+    private ChunkedSongList songs;
     
-    /** Array to store SongRecord objects */
-    private SongRecord[] songs;
+    /**
+     * Case-folded artist name mapped to that artist's songs keyed by order label.
+     * Built on the first artist query and kept up to date by every edit after that.
+     */
+    private HashMap<String, TreeMap<Long, SongRecord>> artistIndex;
+    
+    /** Prefix and substring index over titles and artists, built on the first search */
+    private SongSearchIndex searchIndex;
+    
+    /** Sorted views handed out so far, each built on its first request and kept up to date after that */
+    private EnumMap<SongOrder, SortedSongView> sortedViews;
     
-    /** Current number of songs in the playlist */
-    private int currentSize;
+    /** Records every edit for undo and redo, or null if edits are not recorded */
+    private PlaylistJournal journal;
+    
+    /** Catalog supplying the shared SongRecord of every song added, or null if songs are kept as given */
+    private final SongCatalog catalog;
     
     /**
      * Construct an instance of the Playlist class with no SongRecord objects in it.
      * Postcondition: This Playlist has been initialized to an empty list of SongRecords.
      */
     public Playlist() {
-        songs = new SongRecord[MAX_SONGS];
-        currentSize = 0;
+        this(new ChunkedSongList(), null);
+    }
+    
+    /**
+     * Construct an empty Playlist whose songs are shared through a SongCatalog.
+     * Every song added is replaced by the catalog's SongRecord for it, so getSong may return
+     * a different but equal object, and every song removed drops its reference in the
+     * catalog. Remove all songs from a Playlist before discarding it so the catalog can
+     * release tracks nothing else uses.
+     * @param catalog the catalog to share songs through
+     * @throws IllegalArgumentException if catalog is null
+     */
+    public Playlist(SongCatalog catalog) throws IllegalArgumentException {
+        this(new ChunkedSongList(), catalog);
+        if (catalog == null) {
+            throw new IllegalArgumentException("Catalog cannot be null");
+        }
+    }
+    
+    /**
+     * Construct a Playlist on top of existing storage.
+     * @param songs the storage holding this Playlist's songs
+     * @param catalog the catalog the songs come from, or null
+     */
+    private Playlist(ChunkedSongList songs, SongCatalog catalog) {
+        this.songs = songs;
+        this.catalog = catalog;
+        songs.setLabelListener(new ArtistIndexUpdater());
+    }
+    
+    /**
+     * Re-keys the artist index whenever the storage hands out new order labels.
+     */
+    private class ArtistIndexUpdater implements ChunkedSongList.LabelListener {
+        
+        @Override
+        public void unlabeled(SongRecord song, long oldLabel) {
+            if (artistIndex != null) {
+                // relabeled puts the song straight back, so the entry is not pruned here
+                artistIndex.get(foldCase(song.getArtist())).remove(oldLabel);
+            }
+            if (sortedViews != null) {
+                for (SortedSongView view : sortedViews.values()) {
+                    view.remove(song, oldLabel);
+                }
+            }
+        }
+        
+        @Override
+        public void relabeled(SongRecord song, long newLabel) {
+            if (artistIndex != null) {
+                artistIndex.get(foldCase(song.getArtist())).put(newLabel, song);
+            }
+            if (sortedViews != null) {
+                for (SortedSongView view : sortedViews.values()) {
+                    view.add(song, newLabel);
+                }
+            }
+        }
+        
+        @Override
+        public void relabeledAll() {
+            if (artistIndex != null) {
+                // Views look their artist up on every use, so the index can simply be rebuilt
+                artistIndex.clear();
+                indexAllArtists();
+            }
+            if (sortedViews != null) {
+                for (SortedSongView view : sortedViews.values()) {
+                    rebuild(view);
+                }
+            }
+        }
     }
     
     /**
      * Generate a copy of this Playlist.
+     * The copy shares its storage with this Playlist until either one is edited, and an edit
+     * then copies only the chunks it touches, so taking the copy is O(1). The SongRecord
+     * objects themselves are shared by both Playlists. A Playlist built on a SongCatalog also
+     * adds a catalog reference for each song of the copy, which takes O(n).
      * @return The return value is a copy of this Playlist. Subsequent changes to the copy 
      *         will not affect the original, nor vice versa.
      */
     public Object clone() {
-        Playlist copy = new Playlist();
-        copy.currentSize = this.currentSize;
-        
-        // Deep copy each SongRecord
-        for (int i = 0; i < currentSize; i++) {
-            copy.songs[i] = new SongRecord();
-            copy.songs[i].setTitle(this.songs[i].getTitle());
-            copy.songs[i].setArtist(this.songs[i].getArtist());
-            copy.songs[i].setMinutes(this.songs[i].getMinutes());
-            copy.songs[i].setSeconds(this.songs[i].getSeconds());
+        Playlist copy = new Playlist(songs.snapshot(), catalog);
+        if (catalog != null) {
+            SongRecord[] block = new SongRecord[Math.min(songs.size(), 4096)];
+            for (int from = 0; from < songs.size(); from += block.length) {
+                int to = Math.min(songs.size(), from + block.length);
+                songs.copyRange(from, to, block, null);
+                for (int i = 0; i < to - from; i++) {
+                    catalog.intern(block[i]);
+                }
+            }
         }
-        
         return copy;
     }
     
     /**
      * Compare this Playlist to another object for equality.
+     * Playlists whose content hashes differ are told apart in O(1); only Playlists with
+     * equal hashes are compared song by song.
      * @param obj an object in which this Playlist is compared
      * @return A return value of true indicates that obj refers to a Playlist object with 
      *         the same SongRecords in the same order as this Playlist. Otherwise, false.
@@ -52,12 +158,13 @@ public class Playlist {
         
         Playlist other = (Playlist) obj;
         
-        if (this.currentSize != other.currentSize) {
+        if (this.songs.size() != other.songs.size()
+                || this.songs.contentHash() != other.songs.contentHash()) {
             return false;
         }
         
-        for (int i = 0; i < currentSize; i++) {
-            if (!songsEqual(this.songs[i], other.songs[i])) {
+        for (int i = 0; i < songs.size(); i++) {
+            if (!songsEqual(this.songs.get(i), other.songs.get(i))) {
                 return false;
             }
         }
@@ -65,13 +172,25 @@ public class Playlist {
         return true;
     }
     
+    /**
+     * Gets a hash code consistent with equals, taken from the order-sensitive content hash
+     * that every edit keeps up to date, so this runs in O(1).
+     * Songs must not have their title, artist or length changed while they are in this Playlist.
+     * @return The hash code of this Playlist.
+     */
+    @Override
+    public int hashCode() {
+        long hash = songs.contentHash();
+        return (int) (hash ^ (hash >>> 32));
+    }
+    
     /**
      * Helper method to compare two SongRecord objects for equality
      * @param song1 first song to compare
      * @param song2 second song to compare
      * @return true if songs have same title, artist, and length
      */
-    private boolean songsEqual(SongRecord song1, SongRecord song2) {
+    static boolean songsEqual(SongRecord song1, SongRecord song2) {
         if (song1 == null && song2 == null) return true;
         if (song1 == null || song2 == null) return false;
         
@@ -86,7 +205,7 @@ public class Playlist {
      * @return The number of SongRecords in this Playlist.
      */
     public int size() {
-        return currentSize;
+        return songs.size();
     }
     
     /**
@@ -94,28 +213,39 @@ public class Playlist {
      * @param song the new SongRecord object to add to this Playlist
      * @param position the position in the playlist where the song will be inserted (1-based)
      * @throws IllegalArgumentException if position is not within the valid range
-     * @throws FullPlaylistException if there is no more room in the Playlist
+     * @throws FullPlaylistException if the Playlist already holds Integer.MAX_VALUE songs
      */
     public void addSong(SongRecord song, int position) throws IllegalArgumentException, FullPlaylistException {
-        if (position < 1 || position > currentSize + 1) {
+        if (position < 1 || position > songs.size() + 1) {
             throw new IllegalArgumentException("Invalid position for adding the new song");
         }
         
-        if (currentSize >= MAX_SONGS) {
+        if (songs.size() == Integer.MAX_VALUE) {
             throw new FullPlaylistException("Playlist is full. Cannot add more songs.");
         }
         
-        // Convert to 0-based index
+        if (catalog != null) {
+            song = catalog.intern(song);
+        }
+        
+        // Convert to 0-based index, only the target chunk is shifted
         int index = position - 1;
+        songs.add(index, song);
         
-        // Shift elements to the right
-        for (int i = currentSize; i > index; i--) {
-            songs[i] = songs[i - 1];
+        if (artistIndex != null) {
+            artistSongs(song.getArtist()).put(songs.labelAt(index), song);
+        }
+        if (sortedViews != null) {
+            for (SortedSongView view : sortedViews.values()) {
+                view.add(song, songs.labelAt(index));
+            }
+        }
+        if (searchIndex != null) {
+            searchIndex.add(song);
+        }
+        if (journal != null) {
+            journal.recordAdd(position, new SongRecord[] {song}, 1);
         }
-        
-        // Insert the new song
-        songs[index] = song;
-        currentSize++;
     }
     
     /**
@@ -124,21 +254,243 @@ public class Playlist {
      * @throws IllegalArgumentException if position is not within the valid range
      */
     public void removeSong(int position) throws IllegalArgumentException {
-        if (position < 1 || position > currentSize) {
+        if (position < 1 || position > songs.size()) {
         throw new IllegalArgumentException("No song at position " + position + " to remove");
     }
         
-        // Convert to 0-based index
+        // Convert to 0-based index, only the target chunk is shifted
         int index = position - 1;
+        long label = songs.labelAt(index);
+        SongRecord removed = songs.remove(index);
+        
+        if (catalog != null) {
+            catalog.release(removed);
+        }
+        
+        if (artistIndex != null) {
+            unindexArtist(removed.getArtist(), label);
+        }
+        if (sortedViews != null) {
+            for (SortedSongView view : sortedViews.values()) {
+                view.remove(removed, label);
+            }
+        }
+        if (searchIndex != null) {
+            searchIndex.remove(removed);
+        }
+        if (journal != null) {
+            journal.recordRemove(position, new SongRecord[] {removed}, 1);
+        }
+    }
+    
+    /**
+     * Add a collection of SongRecords to the playlist, the first of them at the specified
+     * position, keeping their order. Later songs are moved once for the whole batch rather
+     * than once per song, so this runs in O(sqrt n + k) for k new songs.
+     * @param newSongs the SongRecord objects to add, in order
+     * @param position the position in the playlist where the first song will be inserted (1-based)
+     * @throws IllegalArgumentException if position is not within the valid range
+     * @throws FullPlaylistException if the Playlist would hold more than Integer.MAX_VALUE songs
+     */
+    public void addAll(Collection<SongRecord> newSongs, int position) throws IllegalArgumentException, FullPlaylistException {
+        if (position < 1 || position > songs.size() + 1) {
+            throw new IllegalArgumentException("Invalid position for adding the new songs");
+        }
+        
+        if (newSongs.size() > Integer.MAX_VALUE - songs.size()) {
+            throw new FullPlaylistException("Playlist is full. Cannot add more songs.");
+        }
+        
+        SongRecord[] batch = newSongs.toArray(new SongRecord[0]);
+        if (catalog != null) {
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = catalog.intern(batch[i]);
+            }
+        }
+        insertBatch(position - 1, batch);
         
-        // Shift elements to the left
-        for (int i = index; i < currentSize - 1; i++) {
-            songs[i] = songs[i + 1];
+        if (journal != null && batch.length > 0) {
+            journal.recordAdd(position, batch, batch.length);
+        }
+    }
+    
+    /**
+     * Remove every SongRecord from fromPosition through toPosition, inclusive.
+     * Only the chunks at the two ends of the range are shifted, so this runs in O(sqrt n + k)
+     * for k removed songs.
+     * @param fromPosition the position of the first song to remove (1-based)
+     * @param toPosition the position of the last song to remove (1-based)
+     * @throws IllegalArgumentException if the range is empty or not within the valid range
+     */
+    public void removeRange(int fromPosition, int toPosition) throws IllegalArgumentException {
+        if (fromPosition < 1 || toPosition > songs.size() || fromPosition > toPosition) {
+            throw new IllegalArgumentException("No songs from position " + fromPosition
+                                               + " to " + toPosition + " to remove");
+        }
+        
+        SongRecord[] removed = detachRange(fromPosition - 1, toPosition);
+        
+        if (catalog != null) {
+            for (SongRecord song : removed) {
+                catalog.release(song);
+            }
+        }
+        if (journal != null) {
+            journal.recordRemove(fromPosition, removed, removed.length);
+        }
+    }
+    
+    /**
+     * Move the SongRecords from fromPosition through toPosition, inclusive, so that the first
+     * of them ends up at newPosition. The moved songs keep their order. Runs in O(sqrt n + k)
+     * for k moved songs.
+     * @param fromPosition the position of the first song to move (1-based)
+     * @param toPosition the position of the last song to move (1-based)
+     * @param newPosition the position the first moved song will have afterwards (1-based)
+     * @throws IllegalArgumentException if the range is empty or either position is not within
+     *         the valid range
+     */
+    public void moveRange(int fromPosition, int toPosition, int newPosition) throws IllegalArgumentException {
+        if (fromPosition < 1 || toPosition > songs.size() || fromPosition > toPosition) {
+            throw new IllegalArgumentException("No songs from position " + fromPosition
+                                               + " to " + toPosition + " to move");
+        }
+        
+        int count = toPosition - fromPosition + 1;
+        if (newPosition < 1 || newPosition > songs.size() - count + 1) {
+            throw new IllegalArgumentException("Invalid position for moving the songs");
+        }
+        
+        if (newPosition != fromPosition) {
+            insertBatch(newPosition - 1, detachRange(fromPosition - 1, toPosition));
+            
+            if (journal != null) {
+                journal.recordMove(fromPosition, count, newPosition);
+            }
+        }
+    }
+    
+    /**
+     * Copies the SongRecords at 0-based indices [from, to) into an array, one chunk at a time.
+     * Used by helpers that scan the whole Playlist without a lookup per song.
+     * @param from 0-based index of the first song to copy
+     * @param to 0-based index after the last song to copy
+     * @param out receives the songs starting at slot 0
+     */
+    void copySongs(int from, int to, SongRecord[] out) {
+        songs.copyRange(from, to, out, null);
+    }
+    
+    /**
+     * Sets the journal that records every later edit of this Playlist.
+     * Called by the PlaylistJournal constructor; a clone does not inherit the journal.
+     * @param journal the journal to notify, replacing any previous one
+     */
+    void setJournal(PlaylistJournal journal) {
+        this.journal = journal;
+    }
+    
+    /**
+     * Copies the SongFingerprints of the songs at 0-based indices [from, to) into an array.
+     * The fingerprints are cached by the storage, so no song is hashed again.
+     * @param from 0-based index of the first song
+     * @param to 0-based index after the last song
+     * @param out receives the fingerprints starting at slot 0
+     */
+    void copyFingerprints(int from, int to, long[] out) {
+        songs.copyFingerprints(from, to, out);
+    }
+    
+    /**
+     * Gets the order-sensitive content hash behind hashCode, at its full 64 bits.
+     * @return the content hash of this Playlist
+     */
+    long contentHash() {
+        return songs.contentHash();
+    }
+    
+    /**
+     * Gets the exact content hash, which unlike contentHash tells apart songs that only
+     * differ in case or whitespace.
+     * @return the exact content hash of this Playlist
+     */
+    long exactContentHash() {
+        return songs.exactContentHash();
+    }
+    
+    /**
+     * Replays a patch made by PlaylistDiff.diff, turning this Playlist into the target
+     * the patch was made for. The songs are first checked against the source in O(1), then
+     * each change is applied with a single batch operation in O(c * sqrt n + k) for c
+     * changes touching k songs.
+     * @param patch the patch to apply
+     * @throws IllegalArgumentException if this Playlist does not hold the songs the patch
+     *         was made from
+     * @throws FullPlaylistException if the result would hold more than Integer.MAX_VALUE songs
+     */
+    public void apply(PlaylistPatch patch) throws IllegalArgumentException, FullPlaylistException {
+        patch.applyTo(this);
+    }
+    
+    /**
+     * Inserts songs at a 0-based index and adds them to the secondary indexes that exist.
+     * @param index 0-based index for the first song
+     * @param batch the songs to insert, in order
+     */
+    private void insertBatch(int index, SongRecord[] batch) {
+        songs.addAll(index, batch, batch.length);
+        
+        if (artistIndex != null || sortedViews != null) {
+            long[] labels = new long[batch.length];
+            songs.copyRange(index, index + batch.length, null, labels);
+            for (int i = 0; i < batch.length; i++) {
+                if (artistIndex != null) {
+                    artistSongs(batch[i].getArtist()).put(labels[i], batch[i]);
+                }
+                if (sortedViews != null) {
+                    for (SortedSongView view : sortedViews.values()) {
+                        view.add(batch[i], labels[i]);
+                    }
+                }
+            }
+        }
+        if (searchIndex != null) {
+            for (SongRecord song : batch) {
+                searchIndex.add(song);
+            }
         }
+    }
+    
+    /**
+     * Removes the songs in [from, to) and drops them from the secondary indexes that exist.
+     * @param from 0-based index of the first song to remove
+     * @param to 0-based index after the last song to remove
+     * @return the removed songs, in order
+     */
+    private SongRecord[] detachRange(int from, int to) {
+        SongRecord[] removed = new SongRecord[to - from];
+        long[] labels = artistIndex != null || sortedViews != null ? new long[removed.length] : null;
+        songs.copyRange(from, to, removed, labels);
+        songs.removeRange(from, to);
         
-        // Clear the last element
-        songs[currentSize - 1] = null;
-        currentSize--;
+        if (artistIndex != null) {
+            for (int i = 0; i < removed.length; i++) {
+                unindexArtist(removed[i].getArtist(), labels[i]);
+            }
+        }
+        if (sortedViews != null) {
+            for (SortedSongView view : sortedViews.values()) {
+                for (int i = 0; i < removed.length; i++) {
+                    view.remove(removed[i], labels[i]);
+                }
+            }
+        }
+        if (searchIndex != null) {
+            for (SongRecord song : removed) {
+                searchIndex.remove(song);
+            }
+        }
+        return removed;
     }
     
     /**
@@ -148,25 +500,165 @@ public class Playlist {
      * @throws IllegalArgumentException if position is not within the valid range
      */
     public SongRecord getSong(int position) throws IllegalArgumentException {
-        if (position < 1 || position > currentSize) {
-            throw new IllegalArgumentException("Position must be between 1 and " + currentSize);
+        if (position < 1 || position > songs.size()) {
+            throw new IllegalArgumentException("Position must be between 1 and " + songs.size());
         }
         
         // Convert to 0-based index
-        return songs[position - 1];
+        return songs.get(position - 1);
+    }
+    
+    /**
+     * Gets the total length of this Playlist, kept up to date by addSong and removeSong.
+     * Songs must not have their length changed while they are in this Playlist.
+     * @return The combined length of every SongRecord in seconds.
+     */
+    public long totalDuration() {
+        return songs.totalSeconds();
+    }
+    
+    /**
+     * Gets how far into this Playlist the SongRecord at the given position starts playing.
+     * Runs in O(log n).
+     * @param position position of the SongRecord (1-based)
+     * @return The combined length in seconds of every SongRecord before position.
+     * @throws IllegalArgumentException if position is not within the valid range
+     */
+    public long offsetOf(int position) throws IllegalArgumentException {
+        if (position < 1 || position > songs.size()) {
+            throw new IllegalArgumentException("Position must be between 1 and " + songs.size());
+        }
+        return songs.offsetOf(position - 1);
+    }
+    
+    /**
+     * Gets the position of the SongRecord playing a given number of seconds into this Playlist.
+     * SongRecords with a length of 0:00 are never playing. Runs in O(log n).
+     * @param elapsedSeconds seconds since the first SongRecord started playing
+     * @return The position (1-based) of the SongRecord playing at elapsedSeconds.
+     * @throws IllegalArgumentException if elapsedSeconds is negative or not before totalDuration()
+     */
+    public int positionAt(long elapsedSeconds) throws IllegalArgumentException {
+        if (elapsedSeconds < 0 || elapsedSeconds >= songs.totalSeconds()) {
+            throw new IllegalArgumentException("Elapsed time must be between 0 and "
+                                               + songs.totalSeconds() + " seconds");
+        }
+        return songs.indexAt(elapsedSeconds) + 1;
+    }
+    
+    /**
+     * Gets the SongRecord playing a given number of seconds into this Playlist.
+     * Runs in O(log n).
+     * @param elapsedSeconds seconds since the first SongRecord started playing
+     * @return The SongRecord playing at elapsedSeconds.
+     * @throws IllegalArgumentException if elapsedSeconds is negative or not before totalDuration()
+     */
+    public SongRecord songAt(long elapsedSeconds) throws IllegalArgumentException {
+        return songs.get(positionAt(elapsedSeconds) - 1);
     }
     
     /**
      * Prints a neatly formatted table of each SongRecord in the Playlist on its own line
-     * with its position number.
+     * with its position number. The rows are streamed to the console through a buffer
+     * rather than built into one String first.
      */
     public void printAllSongs() {
-        System.out.println(toString());
+        Writer console = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+        try {
+            PlaylistRenderer.render(this, console);
+            console.write(System.lineSeparator());
+            console.flush();
+        } catch (IOException e) {
+            // System.out swallows its own errors, so nothing is lost here
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Gets an iterator over the SongRecords in this Playlist in order. The iterator reads
+     * a snapshot taken in O(1), so later edits of this Playlist do not affect it.
+     * @return an iterator over the songs as they are now
+     */
+    @Override
+    public Iterator<SongRecord> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+    
+    /**
+     * Gets a spliterator over the SongRecords in this Playlist in order. It reads a snapshot
+     * taken in O(1), so later edits do not affect it and it can be traversed from any
+     * thread. It splits exactly in half and reports SIZED and SUBSIZED.
+     * @return a spliterator over the songs as they are now
+     */
+    @Override
+    public Spliterator<SongRecord> spliterator() {
+        ChunkedSongList snapshot = songs.snapshot();
+        return new PlaylistSpliterator(snapshot, 0, snapshot.size());
+    }
+    
+    /**
+     * Gets a sequential Stream of the SongRecords in this Playlist in order.
+     * @return a stream over the songs as they are now
+     */
+    public Stream<SongRecord> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+    
+    /**
+     * Gets a parallel Stream of the SongRecords in this Playlist. The songs are split evenly
+     * between worker threads.
+     * @return a parallel stream over the songs as they are now
+     */
+    public Stream<SongRecord> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+    
+    /**
+     * Gets a lazy Stream of the SongRecords in this Playlist performed by the specified
+     * artist (ignoring case), in playlist order. Unlike getSongsByArtist nothing is copied;
+     * call parallel() on the result to filter on several threads.
+     * @param artist the name of the artist
+     * @return a stream over the matching songs as they are now
+     */
+    public Stream<SongRecord> streamByArtist(String artist) {
+        return stream().filter(song -> song != null && song.getArtist().equalsIgnoreCase(artist));
+    }
+    
+    /**
+     * Gets a live, read-only view of the SongRecords in this Playlist performed by the
+     * specified artist (ignoring case), in playlist order. The view reflects later calls to
+     * addSong and removeSong. The first call builds the artist index in O(n); after that
+     * each query is O(1) and iterating the view is O(matches). Querying an artist with no
+     * songs adds nothing to the index.
+     * Songs must not have their artist changed while they are in this Playlist.
+     * @param artist the name of the artist
+     * @return A view of all SongRecords performed by the specified artist
+     */
+    public Collection<SongRecord> songsByArtist(String artist) {
+        if (artistIndex == null) {
+            artistIndex = new HashMap<>();
+            indexAllArtists();
+        }
+        String key = foldCase(artist);
+        // The artist is looked up on every use, so the view stays live when its entry is
+        // created by a later add or pruned by a removal
+        return new AbstractCollection<SongRecord>() {
+            
+            @Override
+            public Iterator<SongRecord> iterator() {
+                return Collections.unmodifiableCollection(indexedSongs(key).values()).iterator();
+            }
+            
+            @Override
+            public int size() {
+                return indexedSongs(key).size();
+            }
+        };
     }
     
     /**
      * Generates a new Playlist containing all SongRecords in the original Playlist
-     * performed by the specified artist.
+     * performed by the specified artist. Use songsByArtist for a view that avoids the copy.
      * @param originalList the original Playlist
      * @param artist the name of the artist
      * @return A new Playlist object containing all SongRecords performed by the specified artist,
@@ -179,39 +671,174 @@ public class Playlist {
         
         Playlist filteredList = new Playlist();
         
-        for (int i = 0; i < originalList.currentSize; i++) {
-            if (originalList.songs[i].getArtist().equalsIgnoreCase(artist)) {
-                try {
-                    filteredList.addSong(originalList.songs[i], filteredList.currentSize + 1);
-                } catch (Exception e) {
-                    System.err.println("Error adding song to filtered list: " + e.getMessage());
-                }
-            }
-        }
+        Collection<SongRecord> matches = originalList.songsByArtist(artist);
+        filteredList.songs.addAll(0, matches.toArray(new SongRecord[0]), matches.size());
         
         return filteredList;
     }
     
+    /**
+     * Finds SongRecords whose title or artist starts with the given text, ignoring case,
+     * for type-ahead search. The first search builds the search index in O(total length of
+     * all titles and artists); after that each query is O(log n + limit) and the index is
+     * kept up to date by every edit.
+     * Songs must not have their title or artist changed while they are in this Playlist.
+     * @param prefix the text typed so far
+     * @param limit the maximum number of SongRecords to return
+     * @return Up to limit SongRecords, ordered by the matching title or artist.
+     * @throws IllegalArgumentException if limit is less than 1
+     */
+    public List<SongRecord> searchPrefix(String prefix, int limit) throws IllegalArgumentException {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        return searchIndex().prefix(prefix, limit);
+    }
+    
+    /**
+     * Finds SongRecords whose title or artist contains the given text anywhere, ignoring case.
+     * Uses the same index as searchPrefix; queries of three or more characters only examine
+     * songs sharing the query's rarest trigram, and shorter queries read the list of songs
+     * containing them until limit songs are found.
+     * @param text the text typed so far
+     * @param limit the maximum number of SongRecords to return
+     * @return Up to limit SongRecords, in no particular order.
+     * @throws IllegalArgumentException if limit is less than 1
+     */
+    public List<SongRecord> searchSubstring(String text, int limit) throws IllegalArgumentException {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be at least 1");
+        }
+        return searchIndex().substring(text, limit);
+    }
+    
+    /**
+     * Gets a live, read-only view of the SongRecords in this Playlist in the given order,
+     * without reordering the Playlist. Songs that compare equal keep their playlist order.
+     * The first call for an order sorts the Playlist in O(n log n); after that every edit
+     * keeps the view up to date in O(log n) per song and get(i) on the view is O(log n).
+     * Songs must not have their title, artist or length changed while they are in this Playlist.
+     * @param order the order to sort by
+     * @return A view of all SongRecords in sorted order
+     * @throws IllegalArgumentException if order is null
+     */
+    public List<SongRecord> sortedView(SongOrder order) throws IllegalArgumentException {
+        if (order == null) {
+            throw new IllegalArgumentException("Order cannot be null");
+        }
+        if (sortedViews == null) {
+            sortedViews = new EnumMap<>(SongOrder.class);
+        }
+        SortedSongView view = sortedViews.get(order);
+        if (view == null) {
+            view = new SortedSongView(order);
+            rebuild(view);
+            sortedViews.put(order, view);
+        }
+        return view;
+    }
+    
+    /**
+     * Refills a sorted view from every song and its current order label.
+     * @param view the view to refill
+     */
+    private void rebuild(SortedSongView view) {
+        SongRecord[] all = new SongRecord[songs.size()];
+        long[] labels = new long[all.length];
+        songs.copyRange(0, all.length, all, labels);
+        view.rebuild(all, labels);
+    }
+    
+    /**
+     * Gets the search index, building it from every song on first use.
+     * @return the search index of this Playlist
+     */
+    private SongSearchIndex searchIndex() {
+        if (searchIndex == null) {
+            searchIndex = new SongSearchIndex();
+            for (int i = 0; i < songs.size(); i++) {
+                searchIndex.add(songs.get(i));
+            }
+        }
+        return searchIndex;
+    }
+    
+    /**
+     * Gets the label-ordered map of songs for an artist, creating an empty one if needed.
+     * Only used when adding songs, so the index never holds an entry for an absent artist.
+     * @param artist the name of the artist, in any case
+     * @return the index entry for the artist
+     */
+    private TreeMap<Long, SongRecord> artistSongs(String artist) {
+        return artistIndex.computeIfAbsent(foldCase(artist), key -> new TreeMap<>());
+    }
+    
+    /**
+     * Gets the label-ordered songs for an artist without changing the index.
+     * @param key the folded name of the artist
+     * @return the index entry for the artist, or an empty map if there is none
+     */
+    private Map<Long, SongRecord> indexedSongs(String key) {
+        Map<Long, SongRecord> byLabel = artistIndex.get(key);
+        return byLabel == null ? Collections.emptyMap() : byLabel;
+    }
+    
+    /**
+     * Removes a song from the artist index, dropping the artist's entry once it is empty.
+     * @param artist the name of the artist, in any case
+     * @param label the label the song was stored under
+     */
+    private void unindexArtist(String artist, long label) {
+        String key = foldCase(artist);
+        TreeMap<Long, SongRecord> byLabel = artistIndex.get(key);
+        byLabel.remove(label);
+        if (byLabel.isEmpty()) {
+            artistIndex.remove(key);
+        }
+    }
+    
+    /**
+     * Adds every song in this Playlist to the artist index.
+     */
+    private void indexAllArtists() {
+        for (int i = 0; i < songs.size(); i++) {
+            SongRecord song = songs.get(i);
+            artistSongs(song.getArtist()).put(songs.labelAt(i), song);
+        }
+    }
+    
+    /**
+     * Folds the case of a String the same way String.equalsIgnoreCase compares characters,
+     * so two Strings fold to the same key exactly when they are equal ignoring case.
+     * @param text the String to fold, null is treated as the empty String
+     * @return the case-folded String
+     */
+    static String foldCase(String text) {
+        if (text == null) {
+            return "";
+        }
+        char[] folded = new char[text.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = Character.toLowerCase(Character.toUpperCase(text.charAt(i)));
+        }
+        return new String(folded);
+    }
+    
     /**
      * Gets the String representation of this Playlist object, which is a neatly formatted
      * table of each SongRecord in the Playlist on its own line with its position number.
+     * Use PlaylistRenderer to write the table, or a page of it, without building the String.
      * @return The String representation of this Playlist object.
      */
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        sb.append("Position | Title                | Artist                    | Length\n");
-        sb.append("---------|----------------------|---------------------------|--------\n");
-        
-        for (int i = 0; i < currentSize; i++) {
-            sb.append(String.format("%-9d%-21s%-26s%d:%02d\n",
-                                   i + 1,  // Position (1-based)
-                                   songs[i].getTitle(),
-                                   songs[i].getArtist(),
-                                   songs[i].getMinutes(),
-                                   songs[i].getSeconds()));
+        try {
+            PlaylistRenderer.render(this, sb);
+        } catch (IOException e) {
+            // A StringBuilder never throws
+            throw new IllegalStateException(e);
         }
-        
         return sb.toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,415 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Paths;
+
+/**
+ * PlaylistBatch runs a script of playlist commands without any menus, for bulk edits and
+ * load testing.
+ *
+ * A script holds one command per line, using the letters of the PlaylistOperations menu
+ * followed by their arguments separated by spaces or tabs. An argument containing spaces
+ * is written in double quotes, with "" for a literal quote. Blank lines and lines starting
+ * with # are ignored. A line with more arguments than its command takes fails without
+ * running the command.
+ * <pre>
+ *   A title artist minutes seconds [position]   add a song, at the end if no position
+ *   R position                                  remove a song
+ *   G position                                  print a song
+ *   B artist                                    print the songs by an artist
+ *   P [page [pageSize]]                         print every song, or one page (default 20 rows)
+ *   S                                           print the number of songs
+ *   L file / W file / I file                    load, write or import a playlist file
+ *   Z / Y                                       undo / redo the last edit
+ *   Q                                           stop reading the script
+ * </pre>
+ * The script is read through a private character buffer and tokenized in place, numbers
+ * are parsed without creating Strings, and all output goes to a single Writer, so a
+ * command costs little more than the Playlist operation itself. A command that fails
+ * writes "line N: reason" and the script carries on with the next line.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+public class PlaylistBatch {
+
+    /** Number of characters read from the script at a time */
+    private static final int BUFFER_CHARS = 1 << 16;
+
+    /** Number of rows P prints per page when no page size is given */
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    /** Marks the end of the script */
+    private static final int EOF = -1;
+
+    /** The script being read */
+    private final Reader in;
+
+    /** Where results and errors are written */
+    private final Writer out;
+
+    /** Characters read from the script but not yet tokenized */
+    private final char[] buffer = new char[BUFFER_CHARS];
+
+    /** Index of the next character in buffer */
+    private int next;
+
+    /** Number of valid characters in buffer */
+    private int limit;
+
+    /** Number (1-based) of the line being read */
+    private int line = 1;
+
+    /** Reused to build quoted and long tokens */
+    private final StringBuilder token = new StringBuilder();
+
+    /** The Playlist the commands edit */
+    private Playlist playlist = new Playlist();
+
+    /** Records the edits so Z and Y can undo and redo them */
+    private PlaylistJournal journal = new PlaylistJournal(playlist);
+
+    /** Number of commands that failed */
+    private int failures;
+
+    /**
+     * Constructs a PlaylistBatch.
+     * @param in the script to read
+     * @param out where results and errors are written
+     */
+    private PlaylistBatch(Reader in, Writer out) {
+        this.in = in;
+        this.out = out;
+    }
+
+    /**
+     * Runs every command of a script against a new, empty Playlist.
+     * The Writer is flushed but neither stream is closed.
+     * @param in the script to read
+     * @param out where results and errors are written
+     * @return the number of commands that failed
+     * @throws IOException if the script cannot be read or the output cannot be written
+     */
+    public static int run(Reader in, Writer out) throws IOException {
+        PlaylistBatch batch = new PlaylistBatch(in, out);
+        batch.runAll();
+        out.flush();
+        return batch.failures;
+    }
+
+    /**
+     * Reads and runs commands until the end of the script or a Q command.
+     * @throws IOException if the script cannot be read or the output cannot be written
+     */
+    private void runAll() throws IOException {
+        while (skipBlankLines()) {
+            int commandLine = line;
+            String command = word();
+            try {
+                if (command.length() != 1) {
+                    throw new IllegalArgumentException("Unknown command " + command);
+                }
+                if (!execute(Character.toUpperCase(command.charAt(0)))) {
+                    return;
+                }
+            } catch (RuntimeException | FullPlaylistException | IOException e) {
+                // Any failure of a single command, checked or not, is reported and skipped
+                fail(commandLine, e.getMessage());
+            }
+            skipLine();
+        }
+    }
+
+    /**
+     * Runs one command, reading its arguments from the rest of the line.
+     * @param command the upper case command letter
+     * @return false if the command was Q
+     * @throws IllegalArgumentException if an argument is missing or invalid
+     * @throws FullPlaylistException if an add would overfill the Playlist
+     * @throws IOException if a playlist file cannot be read or written
+     */
+    private boolean execute(char command) throws IllegalArgumentException, FullPlaylistException, IOException {
+        switch (command) {
+            case 'A':
+                SongRecord song = new SongRecord();
+                song.setTitle(word());
+                song.setArtist(word());
+                song.setMinutes(number());
+                song.setSeconds(number());
+                int at = atEndOfLine() ? playlist.size() + 1 : number();
+                endOfLine();
+                playlist.addSong(song, at);
+                break;
+
+            case 'R':
+                int removed = number();
+                endOfLine();
+                playlist.removeSong(removed);
+                break;
+
+            case 'G':
+                int position = number();
+                endOfLine();
+                SongRecord found = playlist.getSong(position);
+                out.write(Integer.toString(position));
+                out.write(": ");
+                writeSong(found);
+                break;
+
+            case 'B':
+                String artist = word();
+                endOfLine();
+                for (SongRecord match : playlist.songsByArtist(artist)) {
+                    writeSong(match);
+                }
+                break;
+
+            case 'P':
+                if (atEndOfLine()) {
+                    PlaylistRenderer.render(playlist, out);
+                } else {
+                    int page = number();
+                    int pageSize = atEndOfLine() ? DEFAULT_PAGE_SIZE : number();
+                    endOfLine();
+                    PlaylistRenderer.renderPage(playlist, out, page, pageSize);
+                }
+                break;
+
+            case 'S':
+                endOfLine();
+                out.write(Integer.toString(playlist.size()));
+                out.write('\n');
+                break;
+
+            case 'L':
+                String loadName = word();
+                endOfLine();
+                try (PlaylistFile file = PlaylistFile.openReadOnly(Paths.get(loadName))) {
+                    playlist = file.toPlaylist();
+                    journal = new PlaylistJournal(playlist);
+                }
+                break;
+
+            case 'W':
+                String saveName = word();
+                endOfLine();
+                PlaylistFile.save(playlist, Paths.get(saveName));
+                break;
+
+            case 'I':
+                String importName = word();
+                endOfLine();
+                SongImporter.importFile(Paths.get(importName), playlist, playlist.size() + 1);
+                break;
+
+            case 'Z':
+                endOfLine();
+                if (!journal.undo()) {
+                    throw new IllegalArgumentException("Nothing to undo");
+                }
+                break;
+
+            case 'Y':
+                endOfLine();
+                if (!journal.redo()) {
+                    throw new IllegalArgumentException("Nothing to redo");
+                }
+                break;
+
+            case 'Q':
+                endOfLine();
+                return false;
+
+            default:
+                throw new IllegalArgumentException("Unknown command " + command);
+        }
+        return true;
+    }
+
+    /**
+     * Writes a song on its own line using SongRecord.toString, so the output matches the
+     * interactive menu.
+     * @param song the song to write
+     * @throws IOException if the output cannot be written
+     */
+    private void writeSong(SongRecord song) throws IOException {
+        out.write(song.toString());
+        out.write('\n');
+    }
+
+    /**
+     * Reports a failed command.
+     * @param commandLine the line the command is on
+     * @param message the reason it failed
+     * @throws IOException if the output cannot be written
+     */
+    private void fail(int commandLine, String message) throws IOException {
+        failures++;
+        out.write("line ");
+        out.write(Integer.toString(commandLine));
+        out.write(": ");
+        out.write(message == null ? "failed" : message);
+        out.write('\n');
+    }
+
+    /**
+     * Returns the next character of the script without consuming it.
+     * @return the character, or EOF at the end of the script
+     * @throws IOException if the script cannot be read
+     */
+    private int peek() throws IOException {
+        if (next == limit) {
+            int read = in.read(buffer, 0, buffer.length);
+            if (read <= 0) {
+                return EOF;
+            }
+            next = 0;
+            limit = read;
+        }
+        return buffer[next];
+    }
+
+    /**
+     * Skips blank lines, comment lines and leading spaces up to the next command.
+     * @return false at the end of the script
+     * @throws IOException if the script cannot be read
+     */
+    private boolean skipBlankLines() throws IOException {
+        while (true) {
+            skipSpaces();
+            int c = peek();
+            if (c == EOF) {
+                return false;
+            }
+            if (c == '#' || c == '\n' || c == '\r') {
+                skipLine();
+            } else {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Skips spaces and tabs.
+     * @throws IOException if the script cannot be read
+     */
+    private void skipSpaces() throws IOException {
+        int c = peek();
+        while (c == ' ' || c == '\t') {
+            next++;
+            c = peek();
+        }
+    }
+
+    /**
+     * Skips the rest of the current line, including its line break.
+     * @throws IOException if the script cannot be read
+     */
+    private void skipLine() throws IOException {
+        int c = peek();
+        while (c != EOF && c != '\n') {
+            next++;
+            c = peek();
+        }
+        if (c == '\n') {
+            next++;
+            line++;
+        }
+    }
+
+    /**
+     * Checks whether the current line has no more arguments.
+     * @return true if only spaces remain before the line break
+     * @throws IOException if the script cannot be read
+     */
+    private boolean atEndOfLine() throws IOException {
+        skipSpaces();
+        int c = peek();
+        return c == EOF || c == '\n' || c == '\r';
+    }
+
+    /**
+     * Checks that the current line has no arguments left over.
+     * @throws IllegalArgumentException if another argument follows
+     * @throws IOException if the script cannot be read
+     */
+    private void endOfLine() throws IllegalArgumentException, IOException {
+        if (!atEndOfLine()) {
+            throw new IllegalArgumentException("Unexpected argument " + word());
+        }
+    }
+
+    /**
+     * Reads the next argument of the current line, which may be quoted.
+     * @return the argument without its quotes
+     * @throws IllegalArgumentException if the line has no more arguments
+     * @throws IOException if the script cannot be read
+     */
+    private String word() throws IllegalArgumentException, IOException {
+        if (atEndOfLine()) {
+            throw new IllegalArgumentException("Missing argument");
+        }
+        token.setLength(0);
+        if (peek() == '"') {
+            next++;
+            while (true) {
+                int c = peek();
+                if (c == EOF || c == '\n' || c == '\r') {
+                    throw new IllegalArgumentException("Unterminated quote");
+                }
+                next++;
+                if (c == '"') {
+                    if (peek() != '"') {
+                        return token.toString();
+                    }
+                    next++;
+                }
+                token.append((char) c);
+            }
+        }
+        int c = peek();
+        while (c != EOF && c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+            token.append((char) c);
+            next++;
+            c = peek();
+        }
+        return token.toString();
+    }
+
+    /**
+     * Reads the next argument of the current line as a decimal int.
+     * @return the number
+     * @throws IllegalArgumentException if the line has no more arguments or the argument
+     *         is not a number that fits in an int
+     * @throws IOException if the script cannot be read
+     */
+    private int number() throws IllegalArgumentException, IOException {
+        if (atEndOfLine()) {
+            throw new IllegalArgumentException("Missing number");
+        }
+        boolean negative = peek() == '-';
+        if (negative) {
+            next++;
+        }
+        long value = 0;
+        int digits = 0;
+        int c = peek();
+        while (c >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new IllegalArgumentException("Number out of range");
+            }
+            digits++;
+            next++;
+            c = peek();
+        }
+        if (digits == 0 || (c != EOF && c != ' ' && c != '\t' && c != '\n' && c != '\r')) {
+            throw new IllegalArgumentException("Expected a number");
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Number out of range");
+        }
+        return (int) value;
+    }
+}
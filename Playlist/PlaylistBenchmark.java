@@ -0,0 +1,291 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PlaylistBenchmark measures the throughput and allocation of the Playlist hot paths so a
+ * change that regresses one of them shows up before it is merged.
+ *
+ * For every Playlist size from 10 up to the maximum, by powers of ten, it times addSong and
+ * removeSong at the head, middle and tail, and getSongsByArtist, clone, equals and toString.
+ * Each operation first runs for a warm-up period so the JIT has compiled it, and then for
+ * a measured period. Adds and removes alternate in small batches, so the size stays within
+ * a tenth of its nominal value, and each batch is timed on its own. Allocation is read from
+ * the current thread's allocated-bytes counter, and garbage collections from the collector
+ * beans, which together stand in for a GC profiler.
+ *
+ * Usage: java PlaylistBenchmark [maxSize] [millisPerRun]
+ *
+ * or, from this directory, mvn -B -Pbenchmark verify [-Dbenchmark.maxSize=N]
+ * [-Dbenchmark.millis=MS], which builds the module, runs the tests and then this benchmark
+ * in a forked JVM with a fixed heap, logging every collection to target/benchmark-gc.log.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+public class PlaylistBenchmark {
+
+    /** Number of distinct artists in the generated songs */
+    private static final int ARTISTS = 100;
+
+    /** Allocation counter of the current thread, or null if the JVM does not offer one */
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationCounter();
+
+    /** Results are folded in here so the JIT cannot drop the work producing them */
+    private static volatile long sink;
+
+    /**
+     * An operation to measure, run once per call.
+     */
+    private interface Operation {
+
+        /**
+         * Runs the operation once.
+         * @return a value depending on the work done
+         * @throws FullPlaylistException never, the Playlists stay small
+         */
+        long run() throws FullPlaylistException;
+    }
+
+    /**
+     * Running totals for one measured operation.
+     */
+    private static final class Tally {
+
+        /** Operations completed */
+        long operations;
+
+        /** Nanoseconds spent in them */
+        long nanos;
+
+        /** Bytes allocated by them */
+        long bytes;
+
+        /**
+         * Clears the totals before the measured period.
+         */
+        void reset() {
+            operations = 0;
+            nanos = 0;
+            bytes = 0;
+        }
+    }
+
+    /**
+     * Runs every benchmark and prints one row per operation, size and position.
+     * @param args optional maximum size (default 1000000) and run length in ms (default 200)
+     * @throws FullPlaylistException never, Playlist has no practical size limit
+     */
+    public static void main(String[] args) throws FullPlaylistException {
+        int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 200;
+
+        System.out.println("Operation        | Size     | Position | Ops/sec        | Bytes/op   | Alloc MB/sec");
+        System.out.println("-----------------|----------|----------|----------------|------------|-------------");
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        for (int size = 10; size <= maxSize; size *= 10) {
+            Playlist playlist = playlist(size);
+            String[] positions = {"head", "middle", "tail"};
+            for (String position : positions) {
+                addRemove(playlist, size, position, millis);
+            }
+            Playlist copy = (Playlist) playlist.clone();
+            run("getSongsByArtist", size, "-", millis,
+                () -> Playlist.getSongsByArtist(playlist, "Artist 7").size());
+            run("clone", size, "-", millis, () -> ((Playlist) playlist.clone()).size());
+            run("equals", size, "-", millis, () -> playlist.equals(copy) ? 1 : 0);
+            run("toString", size, "-", millis, () -> playlist.toString().length());
+        }
+        System.out.println("GC: " + (gcCount() - gcCount) + " collection(s), "
+                           + (gcMillis() - gcMillis) + " ms");
+    }
+
+    /**
+     * Measures addSong and removeSong at one position, alternating batches of each.
+     * @param playlist the Playlist to edit, left at its original size
+     * @param size the nominal size of the Playlist
+     * @param position head, middle or tail
+     * @param millis how long to warm up and then how long to measure
+     * @throws FullPlaylistException never, the Playlist stays small
+     */
+    private static void addRemove(Playlist playlist, int size, String position, long millis)
+            throws FullPlaylistException {
+        int batch = Math.max(1, Math.min(1000, size / 10));
+        SongRecord[] songs = new SongRecord[batch];
+        for (int i = 0; i < batch; i++) {
+            songs[i] = song(size + i);
+        }
+        Tally adds = new Tally();
+        Tally removes = new Tally();
+
+        for (int phase = 0; phase < 2; phase++) {
+            adds.reset();
+            removes.reset();
+            long end = System.nanoTime() + millis * 1_000_000;
+            while (System.nanoTime() < end) {
+                long bytes = allocatedBytes();
+                long start = System.nanoTime();
+                for (int i = 0; i < batch; i++) {
+                    playlist.addSong(songs[i], at(playlist, position, true));
+                }
+                long middle = System.nanoTime();
+                long middleBytes = allocatedBytes();
+                for (int i = 0; i < batch; i++) {
+                    playlist.removeSong(at(playlist, position, false));
+                }
+                long stop = System.nanoTime();
+                adds.operations += batch;
+                adds.nanos += middle - start;
+                adds.bytes += middleBytes - bytes;
+                removes.operations += batch;
+                removes.nanos += stop - middle;
+                removes.bytes += allocatedBytes() - middleBytes;
+            }
+        }
+        report("addSong", size, position, adds);
+        report("removeSong", size, position, removes);
+    }
+
+    /**
+     * Warms up and then measures a single operation.
+     * @param name the operation name to print
+     * @param size the Playlist size
+     * @param position the position column to print
+     * @param millis how long to warm up and then how long to measure
+     * @param operation the operation
+     * @throws FullPlaylistException never, the Playlists stay small
+     */
+    private static void run(String name, int size, String position, long millis, Operation operation)
+            throws FullPlaylistException {
+        Tally tally = new Tally();
+        for (int phase = 0; phase < 2; phase++) {
+            tally.reset();
+            long end = System.nanoTime() + millis * 1_000_000;
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            // Every operation runs at least once, however long it takes
+            do {
+                sink += operation.run();
+                tally.operations++;
+            } while (System.nanoTime() < end);
+            tally.nanos = System.nanoTime() - start;
+            tally.bytes = allocatedBytes() - bytes;
+        }
+        report(name, size, position, tally);
+    }
+
+    /**
+     * Prints one result row.
+     * @param name the operation name
+     * @param size the Playlist size
+     * @param position the position column
+     * @param tally the measured totals
+     */
+    private static void report(String name, int size, String position, Tally tally) {
+        double seconds = tally.nanos / 1e9;
+        String bytesPerOp = ALLOCATION == null ? "n/a" : String.format("%,d", tally.bytes / tally.operations);
+        String megabytes = ALLOCATION == null ? "n/a" : String.format("%,.1f", tally.bytes / 1e6 / seconds);
+        System.out.printf("%-17s%-11d%-11s%,-17.0f%-13s%s%n", name, size, position,
+                          tally.operations / seconds, bytesPerOp, megabytes);
+    }
+
+    /**
+     * Finds where the next add or remove goes.
+     * @param playlist the Playlist being edited
+     * @param position head, middle or tail
+     * @param adding true for an add, false for a remove
+     * @return the 1-based position
+     */
+    private static int at(Playlist playlist, String position, boolean adding) {
+        int size = playlist.size();
+        switch (position) {
+            case "head":
+                return 1;
+            case "middle":
+                return size / 2 + 1;
+            default:
+                return adding ? size + 1 : size;
+        }
+    }
+
+    /**
+     * Builds a Playlist of generated songs with a single bulk insert.
+     * @param size the number of songs
+     * @return the new Playlist
+     * @throws FullPlaylistException never, Playlist has no practical size limit
+     */
+    private static Playlist playlist(int size) throws FullPlaylistException {
+        List<SongRecord> songs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            songs.add(song(i));
+        }
+        Playlist playlist = new Playlist();
+        playlist.addAll(songs, 1);
+        return playlist;
+    }
+
+    /**
+     * Generates the i-th song.
+     * @param i index of the song
+     * @return a new SongRecord
+     */
+    private static SongRecord song(int i) {
+        SongRecord song = new SongRecord();
+        song.setTitle("Track " + i);
+        song.setArtist("Artist " + (i % ARTISTS));
+        song.setMinutes((i / 7) % 8);
+        song.setSeconds(i % 60);
+        return song;
+    }
+
+    /**
+     * Reads how many bytes the current thread has allocated so far.
+     * @return the allocated byte count, or 0 if the JVM does not track it
+     */
+    private static long allocatedBytes() {
+        return ALLOCATION == null ? 0 : ALLOCATION.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Gets the HotSpot thread bean that counts allocated bytes, if this JVM has one.
+     * @return the bean with allocation counting enabled, or null
+     */
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+            if (hotspot.isThreadAllocatedMemorySupported()) {
+                hotspot.setThreadAllocatedMemoryEnabled(true);
+                return hotspot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Counts the garbage collections so far across all collectors.
+     * @return the total collection count
+     */
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, bean.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * Sums the time spent in garbage collection so far across all collectors.
+     * @return the total collection time in milliseconds
+     */
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, bean.getCollectionTime());
+        }
+        return millis;
+    }
+}
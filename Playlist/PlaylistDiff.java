@@ -0,0 +1,367 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * PlaylistDiff computes the PlaylistPatch that turns one Playlist into another.
+ *
+ * Songs are compared by their cached SongFingerprint first and by their fields only when
+ * the fingerprints agree, so a case change still counts as a change. The common prefix
+ * and suffix are skipped, and the Myers O((N + M) D) algorithm finds a shortest script of
+ * removals and insertions for the rest, where D is the number of songs removed or inserted.
+ * A removed run of songs that is inserted again unchanged somewhere else becomes a single
+ * move that carries no songs.
+ *
+ * The Myers search keeps one row of its table per step, so it is only run for up to
+ * MAX_EDITS steps; Playlists that differ by more than that are patched by replacing
+ * everything between the common prefix and suffix.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+public class PlaylistDiff {
+
+    /** Largest edit distance the Myers search looks for before giving up */
+    private static final int MAX_EDITS = 2048;
+
+    /**
+     * A maximal run of removed source songs followed by inserted target songs, between two
+     * stretches of unchanged songs. Indices are 0-based.
+     */
+    private static final class Hunk {
+
+        /** Index in the source of the first removed song */
+        final int sourceStart;
+
+        /** Number of removed songs */
+        final int removed;
+
+        /** Index in the target of the first inserted song */
+        final int targetStart;
+
+        /** Number of inserted songs */
+        final int inserted;
+
+        /** Hunk whose removed songs are this hunk's inserted songs, or null */
+        Hunk insertedFrom;
+
+        /** Hunk whose inserted songs are this hunk's removed songs, or null */
+        Hunk removedTo;
+
+        /** Current index (0-based) of the removed songs while they wait to be moved */
+        int pendingAt = -1;
+
+        /** True once the removed songs have been moved to their new place */
+        boolean moved;
+
+        /**
+         * Constructs a Hunk.
+         * @param sourceStart index of the first removed song
+         * @param removed number of removed songs
+         * @param targetStart index of the first inserted song
+         * @param inserted number of inserted songs
+         */
+        Hunk(int sourceStart, int removed, int targetStart, int inserted) {
+            this.sourceStart = sourceStart;
+            this.removed = removed;
+            this.targetStart = targetStart;
+            this.inserted = inserted;
+        }
+    }
+
+    /** The source songs being compared */
+    private final SongRecord[] sourceSongs;
+
+    /** The target songs being compared */
+    private final SongRecord[] targetSongs;
+
+    /** Fingerprints of the source songs */
+    private final long[] sourcePrints;
+
+    /** Fingerprints of the target songs */
+    private final long[] targetPrints;
+
+    /**
+     * Captures the songs of both Playlists.
+     * @param source the Playlist to change
+     * @param target the Playlist to change it into
+     */
+    private PlaylistDiff(Playlist source, Playlist target) {
+        sourceSongs = new SongRecord[source.size()];
+        targetSongs = new SongRecord[target.size()];
+        sourcePrints = new long[source.size()];
+        targetPrints = new long[target.size()];
+        source.copySongs(0, source.size(), sourceSongs);
+        target.copySongs(0, target.size(), targetSongs);
+        source.copyFingerprints(0, source.size(), sourcePrints);
+        target.copyFingerprints(0, target.size(), targetPrints);
+    }
+
+    /**
+     * Computes a patch that turns source into target.
+     * @param source the Playlist to change
+     * @param target the Playlist to change it into
+     * @return a patch that, applied to source, makes it equal to target
+     */
+    public static PlaylistPatch diff(Playlist source, Playlist target) {
+        PlaylistDiff diff = new PlaylistDiff(source, target);
+        List<Hunk> hunks = diff.hunks();
+        pairMoves(diff, hunks);
+        return new PlaylistPatch(diff.script(hunks), source.size(), source.contentHash(),
+                                 source.exactContentHash());
+    }
+
+    /**
+     * Checks whether a source song and a target song are the same.
+     * @param i index of the source song
+     * @param j index of the target song
+     * @return true if the songs have equal fingerprints and equal fields
+     */
+    private boolean same(int i, int j) {
+        return sourcePrints[i] == targetPrints[j] && Playlist.songsEqual(sourceSongs[i], targetSongs[j]);
+    }
+
+    /**
+     * Finds the hunks of a shortest script, skipping the common prefix and suffix first.
+     * @return the hunks in order
+     */
+    private List<Hunk> hunks() {
+        int n = sourceSongs.length;
+        int m = targetSongs.length;
+        int prefix = 0;
+        while (prefix < n && prefix < m && same(prefix, prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < n - prefix && suffix < m - prefix && same(n - 1 - suffix, m - 1 - suffix)) {
+            suffix++;
+        }
+
+        List<Hunk> hunks = new ArrayList<>();
+        int sourceEnd = n - suffix;
+        int targetEnd = m - suffix;
+        if (prefix == sourceEnd || prefix == targetEnd) {
+            if (prefix < sourceEnd || prefix < targetEnd) {
+                hunks.add(new Hunk(prefix, sourceEnd - prefix, prefix, targetEnd - prefix));
+            }
+            return hunks;
+        }
+
+        boolean[] removed = new boolean[sourceEnd - prefix];
+        boolean[] inserted = new boolean[targetEnd - prefix];
+        if (!myers(prefix, sourceEnd, targetEnd, removed, inserted)) {
+            hunks.add(new Hunk(prefix, sourceEnd - prefix, prefix, targetEnd - prefix));
+            return hunks;
+        }
+
+        for (int i = 0, j = 0; i < removed.length || j < inserted.length; ) {
+            int startI = i;
+            int startJ = j;
+            while (i < removed.length && removed[i]) {
+                i++;
+            }
+            while (j < inserted.length && inserted[j]) {
+                j++;
+            }
+            if (i > startI || j > startJ) {
+                hunks.add(new Hunk(prefix + startI, i - startI, prefix + startJ, j - startJ));
+            } else {
+                i++;
+                j++;
+            }
+        }
+        return hunks;
+    }
+
+    /**
+     * Runs the Myers search on source[offset, sourceEnd) against target[offset, targetEnd)
+     * and marks the songs a shortest script removes and inserts.
+     * @param offset index of the first song of both ranges
+     * @param sourceEnd index after the last source song
+     * @param targetEnd index after the last target song
+     * @param removed receives true for each removed source song, relative to offset
+     * @param inserted receives true for each inserted target song, relative to offset
+     * @return false if the ranges differ by more than MAX_EDITS songs
+     */
+    private boolean myers(int offset, int sourceEnd, int targetEnd, boolean[] removed, boolean[] inserted) {
+        int n = sourceEnd - offset;
+        int m = targetEnd - offset;
+        int limit = Math.min(MAX_EDITS, n + m);
+        // v[limit + k] is the furthest source index reached on diagonal k = x - y
+        int[] v = new int[2 * limit + 3];
+        List<int[]> trace = new ArrayList<>();
+
+        int found = -1;
+        for (int d = 0; d <= limit && found < 0; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && v[limit + k - 1] < v[limit + k + 1])
+                        ? v[limit + k + 1] : v[limit + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && same(offset + x, offset + y)) {
+                    x++;
+                    y++;
+                }
+                v[limit + k] = x;
+                if (x >= n && y >= m) {
+                    found = d;
+                }
+            }
+            trace.add(Arrays.copyOfRange(v, limit - d, limit + d + 1));
+        }
+        if (found < 0) {
+            return false;
+        }
+
+        // Walk back from the end, one removal or insertion per step
+        int x = n;
+        int y = m;
+        for (int d = found; d > 0; d--) {
+            int[] previous = trace.get(d - 1);
+            int k = x - y;
+            boolean down = k == -d || (k != d && previous[k - 1 + d - 1] < previous[k + 1 + d - 1]);
+            int previousK = down ? k + 1 : k - 1;
+            int previousX = previous[previousK + d - 1];
+            int previousY = previousX - previousK;
+            if (down) {
+                inserted[previousY] = true;
+            } else {
+                removed[previousX] = true;
+            }
+            x = previousX;
+            y = previousY;
+        }
+        return true;
+    }
+
+    /**
+     * Pairs each hunk's inserted songs with another hunk's removed songs when they are the
+     * same songs in the same order, so the pair can become a move.
+     * @param diff the songs being compared
+     * @param hunks the hunks in order
+     */
+    private static void pairMoves(PlaylistDiff diff, List<Hunk> hunks) {
+        HashMap<Long, List<Hunk>> byRemovedHash = new HashMap<>();
+        for (Hunk hunk : hunks) {
+            if (hunk.removed > 0) {
+                byRemovedHash.computeIfAbsent(diff.runHash(diff.sourcePrints, hunk.sourceStart, hunk.removed),
+                                              key -> new ArrayList<>()).add(hunk);
+            }
+        }
+        for (Hunk hunk : hunks) {
+            if (hunk.inserted == 0) {
+                continue;
+            }
+            List<Hunk> candidates = byRemovedHash.get(diff.runHash(diff.targetPrints, hunk.targetStart,
+                                                                   hunk.inserted));
+            if (candidates == null) {
+                continue;
+            }
+            for (Hunk candidate : candidates) {
+                if (candidate.removedTo == null && candidate != hunk && candidate.removed == hunk.inserted
+                        && diff.sameRun(candidate.sourceStart, hunk.targetStart, hunk.inserted)) {
+                    candidate.removedTo = hunk;
+                    hunk.insertedFrom = candidate;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Hashes a run of fingerprints.
+     * @param prints the fingerprints
+     * @param start index of the first fingerprint of the run
+     * @param count length of the run
+     * @return the hash of the run
+     */
+    private long runHash(long[] prints, int start, int count) {
+        long hash = count;
+        for (int i = start; i < start + count; i++) {
+            hash = hash * 0x9E3779B97F4A7C15L + prints[i];
+        }
+        return hash;
+    }
+
+    /**
+     * Checks whether a run of source songs equals a run of target songs.
+     * @param sourceStart index of the first source song
+     * @param targetStart index of the first target song
+     * @param count length of the runs
+     * @return true if every pair of songs is the same
+     */
+    private boolean sameRun(int sourceStart, int targetStart, int count) {
+        for (int i = 0; i < count; i++) {
+            if (!same(sourceStart + i, targetStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Turns the hunks into operations applied front to back.
+     * Before each hunk the Playlist holds the target up to the hunk, with the removed runs
+     * that wait to be moved further on still in place, followed by the rest of the source
+     * minus the runs already moved earlier.
+     * @param hunks the paired hunks in order
+     * @return the operations
+     */
+    private List<PlaylistPatch.Operation> script(List<Hunk> hunks) {
+        List<PlaylistPatch.Operation> operations = new ArrayList<>();
+        List<Hunk> pending = new ArrayList<>();
+        int pendingTotal = 0;
+
+        for (Hunk hunk : hunks) {
+            // Index of the first song of this hunk in the Playlist as it is now
+            int cursor = hunk.targetStart + pendingTotal;
+
+            if (hunk.removed > 0 && !hunk.moved) {
+                if (hunk.removedTo != null && hunk.removedTo.targetStart > hunk.targetStart) {
+                    hunk.pendingAt = cursor;
+                    pending.add(hunk);
+                    pendingTotal += hunk.removed;
+                    cursor += hunk.removed;
+                } else {
+                    operations.add(new PlaylistPatch.Operation(PlaylistPatch.REMOVE, cursor + 1,
+                                                               hunk.removed, 0, null));
+                }
+            }
+
+            if (hunk.inserted == 0) {
+                continue;
+            }
+            Hunk from = hunk.insertedFrom;
+            if (from != null && from.pendingAt >= 0) {
+                // Pull a run left behind earlier up to the cursor
+                operations.add(new PlaylistPatch.Operation(PlaylistPatch.MOVE, from.pendingAt + 1,
+                                                           from.removed, cursor - from.removed + 1, null));
+                pending.remove(from);
+                for (Hunk other : pending) {
+                    if (other.pendingAt > from.pendingAt) {
+                        other.pendingAt -= from.removed;
+                    }
+                }
+                pendingTotal -= from.removed;
+                from.pendingAt = -1;
+                from.moved = true;
+            } else if (from != null && !from.moved && from.sourceStart >= hunk.sourceStart + hunk.removed) {
+                // Bring a run from further on in the source up to the cursor
+                int at = cursor + from.sourceStart - (hunk.sourceStart + hunk.removed);
+                for (Hunk other : hunks) {
+                    if (other.moved && other.sourceStart >= hunk.sourceStart + hunk.removed
+                            && other.sourceStart < from.sourceStart) {
+                        at -= other.removed;
+                    }
+                }
+                operations.add(new PlaylistPatch.Operation(PlaylistPatch.MOVE, at + 1, from.removed,
+                                                           cursor + 1, null));
+                from.moved = true;
+            } else {
+                operations.add(new PlaylistPatch.Operation(PlaylistPatch.INSERT, cursor + 1, hunk.inserted, 0,
+                        Arrays.copyOfRange(targetSongs, hunk.targetStart, hunk.targetStart + hunk.inserted)));
+            }
+        }
+        return operations;
+    }
+}
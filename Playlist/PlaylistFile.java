@@ -0,0 +1,480 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * PlaylistFile is a compact binary file holding a list of songs, opened through a
+ * memory map so that large playlists open in milliseconds.
+ *
+ * File layout, all numbers big-endian:
+ * <pre>
+ *   header   magic "PLST", version, record count, record capacity, heap size,
+ *            heap start (32 bytes)
+ *   records  capacity fixed-width slots of 20 bytes: title offset, title length,
+ *            artist offset, artist length, length in seconds (ints)
+ *   heap     UTF-8 bytes of every title and artist, offsets are relative to its start
+ * </pre>
+ * The heap starts at or after the end of the record table. Version 1 files have no heap
+ * start field and their heap always starts right after the table.
+ * Opening a file only reads the header. getSong decodes a single record straight from the
+ * map. Appends write the new records into free slots and their strings onto the end of the
+ * heap, then update the header, so the rest of the file is never rewritten. When the record
+ * table is full its capacity doubles and the heap is copied once to a region that overlaps
+ * neither the grown table nor the old heap, which keeps appends amortized O(k) for k new
+ * songs. New data is always forced to disk before the header that refers to it is written,
+ * so a crash leaves either the old or the new contents readable. A file opened with
+ * openReadOnly is mapped without write access, so read-only files can still be loaded.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+public class PlaylistFile implements Closeable {
+
+    /** Identifies a playlist file, the bytes "PLST" */
+    private static final int MAGIC = 0x504C5354;
+
+    /** Format version written to new files */
+    private static final int VERSION = 2;
+
+    /** Oldest format version that can still be read, which has no heap start field */
+    private static final int VERSION_1 = 1;
+
+    /** Size of the header in bytes */
+    private static final int HEADER_BYTES = 32;
+
+    /** Size of one record slot in bytes */
+    private static final int RECORD_BYTES = 20;
+
+    /** Number of record slots reserved when a file is created */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** Size of the buffers data is copied and written through */
+    private static final int BLOCK_BYTES = 1 << 16;
+
+    /** Channel the file is read and written through */
+    private final FileChannel channel;
+
+    /** Whether the channel was opened for writing */
+    private final boolean writable;
+
+    /** Map of the whole file, replaced whenever the file grows */
+    private MappedByteBuffer map;
+
+    /** Number of records in the file */
+    private int count;
+
+    /** Number of record slots before the heap starts */
+    private int capacity;
+
+    /** Number of bytes of heap in use */
+    private long heapSize;
+
+    /** File offset where the heap starts */
+    private long heapStart;
+
+    /**
+     * Wraps an open channel whose header has already been validated or written.
+     * @param channel the channel of the playlist file
+     * @param count the number of records
+     * @param capacity the number of record slots
+     * @param heapSize the number of heap bytes in use
+     * @param heapStart the file offset where the heap starts
+     * @param writable whether the channel was opened for writing
+     * @throws IOException if the file cannot be mapped
+     */
+    private PlaylistFile(FileChannel channel, int count, int capacity, long heapSize, long heapStart,
+                         boolean writable) throws IOException {
+        this.channel = channel;
+        this.writable = writable;
+        this.count = count;
+        this.capacity = capacity;
+        this.heapSize = heapSize;
+        this.heapStart = heapStart;
+        remap();
+    }
+
+    /**
+     * Creates a new, empty playlist file, replacing any file already at path.
+     * @param path where to create the file
+     * @return the open PlaylistFile
+     * @throws IOException if the file cannot be created
+     */
+    public static PlaylistFile create(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        long heapStart = HEADER_BYTES + (long) INITIAL_CAPACITY * RECORD_BYTES;
+        writeHeader(channel, 0, INITIAL_CAPACITY, 0, heapStart);
+        return new PlaylistFile(channel, 0, INITIAL_CAPACITY, 0, heapStart, true);
+    }
+
+    /**
+     * Opens an existing playlist file for reading and appending.
+     * Only the header is read, records are decoded when they are asked for.
+     * @param path the file to open
+     * @return the open PlaylistFile
+     * @throws IOException if the file cannot be read or is not a playlist file
+     */
+    public static PlaylistFile open(Path path) throws IOException {
+        return open(path, true);
+    }
+
+    /**
+     * Opens an existing playlist file for reading only. The file needs no write permission
+     * and appending to it throws an IOException.
+     * @param path the file to open
+     * @return the open PlaylistFile
+     * @throws IOException if the file cannot be read or is not a playlist file
+     */
+    public static PlaylistFile openReadOnly(Path path) throws IOException {
+        return open(path, false);
+    }
+
+    /**
+     * Opens an existing playlist file and validates its header.
+     * @param path the file to open
+     * @param writable whether to open the file for appending as well as reading
+     * @return the open PlaylistFile
+     * @throws IOException if the file cannot be opened or is not a playlist file
+     */
+    private static PlaylistFile open(Path path, boolean writable) throws IOException {
+        FileChannel channel = writable
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // keep reading until the header is complete or the file ends
+        }
+        header.flip();
+
+        if (header.remaining() < HEADER_BYTES || header.getInt(0) != MAGIC) {
+            channel.close();
+            throw new IOException(path + " is not a playlist file");
+        }
+        int version = header.getInt(4);
+        if (version != VERSION && version != VERSION_1) {
+            channel.close();
+            throw new IOException("Unsupported playlist file version " + version);
+        }
+
+        int count = header.getInt(8);
+        int capacity = header.getInt(12);
+        long heapSize = header.getLong(16);
+        long tableEnd = HEADER_BYTES + (long) capacity * RECORD_BYTES;
+        long heapStart = version == VERSION_1 ? tableEnd : header.getLong(24);
+        long fileSize = channel.size();
+        if (count < 0 || count > capacity || heapSize < 0 || heapStart < tableEnd
+                || heapStart > fileSize || heapSize > fileSize - heapStart) {
+            channel.close();
+            throw new IOException(path + " is truncated or corrupt");
+        }
+        return new PlaylistFile(channel, count, capacity, heapSize, heapStart, writable);
+    }
+
+    /**
+     * Writes every song of a Playlist to a new playlist file. The file is written in full to a
+     * temporary file in the same directory, forced to disk and then moved over path in one
+     * atomic step, so a failed save leaves any existing file untouched.
+     * @param playlist the Playlist to save
+     * @param path where to write the file, any existing file is replaced
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(Playlist playlist, Path path) throws IOException {
+        List<SongRecord> songs = new ArrayList<>(playlist.size());
+        for (int i = 1; i <= playlist.size(); i++) {
+            songs.add(playlist.getSong(i));
+        }
+        Path absolute = path.toAbsolutePath();
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            // close forces the contents to disk before the move makes them visible
+            try (PlaylistFile file = create(temp)) {
+                file.append(songs);
+            }
+            Files.move(temp, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Determines the number of songs in this file.
+     * @return the number of records
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Decodes the song at the given position from the mapped file.
+     * @param position position of the song to read (1-based)
+     * @return a new SongRecord holding the stored fields
+     * @throws IllegalArgumentException if position is not within the valid range
+     * @throws IOException if the record points outside the heap or holds an invalid length
+     */
+    public SongRecord getSong(int position) throws IllegalArgumentException, IOException {
+        if (position < 1 || position > count) {
+            throw new IllegalArgumentException("Position must be between 1 and " + count);
+        }
+
+        int record = HEADER_BYTES + (position - 1) * RECORD_BYTES;
+        int seconds = map.getInt(record + 16);
+        if (seconds < 0 || seconds >= 60 * 60) {
+            throw new IOException("Record " + position + " of the playlist file holds an invalid length");
+        }
+        SongRecord song = new SongRecord();
+        song.setTitle(readString(position, map.getInt(record), map.getInt(record + 4)));
+        song.setArtist(readString(position, map.getInt(record + 8), map.getInt(record + 12)));
+        song.setMinutes(seconds / 60);
+        song.setSeconds(seconds % 60);
+        return song;
+    }
+
+    /**
+     * Reads every record into a new Playlist, filled with a single bulk insert.
+     * @return a Playlist holding the songs of this file in order
+     * @throws IOException if a record is corrupt
+     */
+    public Playlist toPlaylist() throws IOException {
+        List<SongRecord> songs = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            songs.add(getSong(i));
+        }
+        Playlist playlist = new Playlist();
+        try {
+            playlist.addAll(songs, 1);
+        } catch (FullPlaylistException e) {
+            // A file holds at most Integer.MAX_VALUE records, which always fit
+            throw new IllegalStateException(e);
+        }
+        return playlist;
+    }
+
+    /**
+     * Appends a single song to the end of the file.
+     * @param song the song to append
+     * @throws IOException if the file cannot be written or was opened read-only
+     */
+    public void append(SongRecord song) throws IOException {
+        append(Collections.singletonList(song));
+    }
+
+    /**
+     * Appends songs to the end of the file. Only the new records, their strings and the
+     * header are written. Records and strings are encoded into fixed-size blocks that are
+     * written out as they fill, so memory use does not grow with the number of songs.
+     * @param songs the songs to append, in order
+     * @throws IOException if the file cannot be written or was opened read-only
+     */
+    public void append(Collection<SongRecord> songs) throws IOException {
+        if (!writable) {
+            throw new IOException("Playlist file was opened read-only");
+        }
+        if (songs.isEmpty()) {
+            return;
+        }
+        if ((long) count + songs.size() > Integer.MAX_VALUE) {
+            throw new IOException("A playlist file holds at most " + Integer.MAX_VALUE + " songs");
+        }
+        if (count + songs.size() > capacity) {
+            growCapacity(Math.max(capacity * 2L, (long) count + songs.size()));
+        }
+
+        int added = songs.size();
+        ByteBuffer records = ByteBuffer.allocate(BLOCK_BYTES - BLOCK_BYTES % RECORD_BYTES);
+        ByteBuffer strings = ByteBuffer.allocate(BLOCK_BYTES);
+        long recordPosition = HEADER_BYTES + (long) count * RECORD_BYTES;
+        long stringPosition = heapStart + heapSize;
+        long heapEnd = heapSize;
+        for (SongRecord song : songs) {
+            byte[] title = bytesOf(song.getTitle());
+            byte[] artist = bytesOf(song.getArtist());
+            if (heapEnd + title.length + artist.length > Integer.MAX_VALUE) {
+                throw new IOException("String heap of a playlist file is limited to 2 GB");
+            }
+            if (!records.hasRemaining()) {
+                recordPosition = writeBlock(records, recordPosition);
+            }
+            records.putInt((int) heapEnd).putInt(title.length);
+            records.putInt((int) heapEnd + title.length).putInt(artist.length);
+            records.putInt(song.getMinutes() * 60 + song.getSeconds());
+            stringPosition = putString(strings, title, stringPosition);
+            stringPosition = putString(strings, artist, stringPosition);
+            heapEnd += title.length + artist.length;
+        }
+
+        // Data first, header last, so a crash while filling free slots leaves the old contents readable
+        writeBlock(strings, stringPosition);
+        writeBlock(records, recordPosition);
+        channel.force(false);
+        count += added;
+        heapSize = heapEnd;
+        writeHeader(channel, count, capacity, heapSize, heapStart);
+        remap();
+    }
+
+    /**
+     * Flushes outstanding writes, if the file is writable, and closes the file.
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (writable) {
+                channel.force(false);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Enlarges the record table, copying the heap out of the way of the new slots.
+     * The copy goes past the end of both the grown table and the old heap, and is forced to
+     * disk before the header points at it, so the file stays readable if the copy is cut short.
+     * @param newCapacity the number of record slots wanted
+     * @throws IOException if the file cannot be written
+     */
+    private void growCapacity(long newCapacity) throws IOException {
+        int grown = (int) Math.min(newCapacity, Integer.MAX_VALUE);
+        long newStart = Math.max(HEADER_BYTES + (long) grown * RECORD_BYTES, heapStart + heapSize);
+
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_BYTES);
+        for (long done = 0; done < heapSize; ) {
+            int length = (int) Math.min(block.capacity(), heapSize - done);
+            block.clear().limit(length);
+            while (block.hasRemaining()) {
+                if (channel.read(block, heapStart + done + block.position()) < 0) {
+                    throw new IOException("Playlist file is truncated");
+                }
+            }
+            writeFully(block.flip(), newStart + done);
+            done += length;
+        }
+        channel.force(false);
+
+        capacity = grown;
+        heapStart = newStart;
+        writeHeader(channel, count, capacity, heapSize, heapStart);
+        channel.force(false);
+        remap();
+    }
+
+    /**
+     * Decodes a string stored in the heap.
+     * @param position position of the record the string belongs to, for the error message
+     * @param offset where the string starts, relative to the heap
+     * @param length the number of bytes in the string
+     * @return the decoded String
+     * @throws IOException if the string does not lie within the heap
+     */
+    private String readString(int position, int offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || (long) offset + length > heapSize) {
+            throw new IOException("Record " + position + " of the playlist file points outside its heap");
+        }
+        byte[] bytes = new byte[length];
+        map.get((int) (heapStart + offset), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Maps the used part of the file, replacing the previous map.
+     * @throws IOException if the file cannot be mapped or is too large to map
+     */
+    private void remap() throws IOException {
+        long length = heapStart + heapSize;
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Playlist files larger than 2 GB cannot be mapped");
+        }
+        if (channel.size() < length) {
+            // Reserve the empty record slots so the whole map lies within the file
+            writeFully(ByteBuffer.allocate(1), length - 1);
+        }
+        map = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+    }
+
+    /**
+     * Adds a string to a block of heap bytes, writing the block out first if the string
+     * does not fit. A string larger than the block is written directly.
+     * @param block the block being filled
+     * @param bytes the encoded string
+     * @param position the file offset the block is written at
+     * @return the file offset the block is written at after this string
+     * @throws IOException if the file cannot be written
+     */
+    private long putString(ByteBuffer block, byte[] bytes, long position) throws IOException {
+        if (block.remaining() < bytes.length) {
+            position = writeBlock(block, position);
+            if (bytes.length > block.capacity()) {
+                writeFully(ByteBuffer.wrap(bytes), position);
+                return position + bytes.length;
+            }
+        }
+        block.put(bytes);
+        return position;
+    }
+
+    /**
+     * Writes out the filled part of a block and empties it.
+     * @param block the block to write
+     * @param position the file offset to write it at
+     * @return the file offset just after the written bytes
+     * @throws IOException if the file cannot be written
+     */
+    private long writeBlock(ByteBuffer block, long position) throws IOException {
+        long end = position + block.position();
+        writeFully(block.flip(), position);
+        block.clear();
+        return end;
+    }
+
+    /**
+     * Writes the whole buffer at the given file offset.
+     * @param buffer the bytes to write
+     * @param position the file offset to write at
+     * @throws IOException if the file cannot be written
+     */
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Writes a header describing the file.
+     * @param channel the channel of the playlist file
+     * @param count the number of records
+     * @param capacity the number of record slots
+     * @param heapSize the number of heap bytes in use
+     * @param heapStart the file offset where the heap starts
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeHeader(FileChannel channel, int count, int capacity, long heapSize,
+                                    long heapStart) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(capacity).putLong(heapSize).putLong(heapStart);
+        header.clear();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    /**
+     * Encodes a field as UTF-8, treating null as the empty String.
+     * @param text the field to encode
+     * @return the encoded bytes
+     */
+    private static byte[] bytesOf(String text) {
+        return (text == null ? "" : text).getBytes(StandardCharsets.UTF_8);
+    }
+}
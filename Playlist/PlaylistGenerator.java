@@ -0,0 +1,228 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * PlaylistGenerator fills a Playlist to a target length from a pool of candidate songs,
+ * for example exactly 60 minutes of radio.
+ *
+ * The candidates are taken in random order, so each seed gives a different selection, by a
+ * subset-sum solver over lengths in whole seconds. The solver keeps the set of reachable
+ * totals as a bitset and adds a song of d seconds by shifting the bitset left by d and
+ * or-ing it in, 64 totals per machine word, so a candidate costs O(T / 64) for totals up
+ * to T. The first song to reach each total is remembered, which is enough to read a
+ * selection back from any reachable total. The search stops as soon as the target itself
+ * is reached, which for a large pool usually happens after a few dozen candidates, or when
+ * the time budget runs out, and otherwise settles for the reachable total nearest the target.
+ *
+ * The random order is drawn one candidate at a time, so a search that stops early never
+ * shuffles or examines the rest of the pool. An optional artist limit only admits the first
+ * few songs drawn of each artist, ignoring case, so any selection respects it.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+public class PlaylistGenerator {
+
+    /** Longest target plus tolerance accepted, one day in seconds */
+    public static final int MAX_TARGET_SECONDS = 24 * 60 * 60;
+
+    /** Number of candidates between checks of the time budget */
+    private static final int CLOCK_INTERVAL = 256;
+
+    /** Source of the candidate order */
+    private final SplittableRandom random;
+
+    /**
+     * Constructs a PlaylistGenerator.
+     * @param seed seed for the candidate order; equal seeds and pools give equal Playlists
+     */
+    public PlaylistGenerator(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Generates a Playlist whose total length is within a tolerance of a target, with no
+     * artist limit and no time budget.
+     * @param pool the candidate songs
+     * @param targetSeconds the desired total length in seconds
+     * @param toleranceSeconds how far the total may be from the target, in seconds
+     * @return a new Playlist of distinct candidates, or null if no selection is close enough
+     * @throws IllegalArgumentException if pool is null, targetSeconds is less than 1,
+     *         toleranceSeconds is negative, or their sum exceeds MAX_TARGET_SECONDS
+     */
+    public Playlist generate(Collection<SongRecord> pool, int targetSeconds, int toleranceSeconds)
+            throws IllegalArgumentException {
+        return generate(pool, targetSeconds, toleranceSeconds, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Generates a Playlist whose total length is within a tolerance of a target.
+     * @param pool the candidate songs
+     * @param targetSeconds the desired total length in seconds
+     * @param toleranceSeconds how far the total may be from the target, in seconds
+     * @param maxPerArtist the most songs any one artist may have in the result
+     * @param timeBudgetMillis how long to search before settling for the best total found
+     * @return a new Playlist of distinct candidates, or null if no selection is close enough
+     * @throws IllegalArgumentException if pool is null, targetSeconds is less than 1,
+     *         toleranceSeconds is negative, their sum exceeds MAX_TARGET_SECONDS, or
+     *         maxPerArtist or timeBudgetMillis is less than 1
+     */
+    public Playlist generate(Collection<SongRecord> pool, int targetSeconds, int toleranceSeconds,
+                             int maxPerArtist, long timeBudgetMillis) throws IllegalArgumentException {
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool cannot be null");
+        }
+        if (targetSeconds < 1 || toleranceSeconds < 0
+                || (long) targetSeconds + toleranceSeconds > MAX_TARGET_SECONDS) {
+            throw new IllegalArgumentException("Target must be between 1 and " + MAX_TARGET_SECONDS + " seconds");
+        }
+        if (maxPerArtist < 1 || timeBudgetMillis < 1) {
+            throw new IllegalArgumentException("Artist limit and time budget must be at least 1");
+        }
+        long start = System.nanoTime();
+        long budget = timeBudgetMillis >= Long.MAX_VALUE / 1_000_000 ? Long.MAX_VALUE : timeBudgetMillis * 1_000_000;
+
+        SongRecord[] candidates = candidates(pool, targetSeconds + toleranceSeconds);
+        HashMap<String, Integer> perArtist = maxPerArtist == Integer.MAX_VALUE ? null : new HashMap<>();
+
+        // reachable has bit s set when some selection of the candidates so far totals s seconds
+        int limit = targetSeconds + toleranceSeconds;
+        long[] reachable = new long[(limit >>> 6) + 1];
+        reachable[0] = 1;
+        long topMask = -1L >>> (63 - (limit & 63));
+        int[] firstSong = new int[limit + 1];
+
+        for (int i = 0; i < candidates.length; i++) {
+            // Draw the next candidate at random from those not drawn yet
+            int j = i + random.nextInt(candidates.length - i);
+            SongRecord song = candidates[j];
+            candidates[j] = candidates[i];
+            candidates[i] = song;
+
+            if (perArtist == null
+                    || perArtist.merge(Playlist.foldCase(song.getArtist()), 1, Integer::sum) <= maxPerArtist) {
+                addCandidate(reachable, topMask, firstSong, i, seconds(song));
+                if (isReachable(reachable, targetSeconds)) {
+                    break;
+                }
+            }
+            if ((i + 1) % CLOCK_INTERVAL == 0 && System.nanoTime() - start > budget) {
+                break;
+            }
+        }
+
+        int total = nearestReachable(reachable, targetSeconds, toleranceSeconds);
+        if (total < 0) {
+            return null;
+        }
+
+        // Walk back through the first song to reach each total; indices strictly decrease
+        List<SongRecord> selection = new ArrayList<>();
+        while (total > 0) {
+            SongRecord song = candidates[firstSong[total]];
+            selection.add(song);
+            total -= seconds(song);
+        }
+
+        Playlist playlist = new Playlist();
+        try {
+            playlist.addAll(selection, 1);
+        } catch (FullPlaylistException e) {
+            // A selection never holds more songs than the target has seconds
+            throw new IllegalStateException(e);
+        }
+        return playlist;
+    }
+
+    /**
+     * Collects the songs of the pool that can be part of a selection.
+     * @param pool the candidate songs
+     * @param limit the longest total considered, in seconds
+     * @return the usable candidates, in pool order
+     */
+    private static SongRecord[] candidates(Collection<SongRecord> pool, int limit) {
+        SongRecord[] songs = new SongRecord[pool.size()];
+        int count = 0;
+        for (SongRecord song : pool) {
+            // A song of no length adds nothing, and one longer than the limit never fits
+            if (song != null && seconds(song) > 0 && seconds(song) <= limit) {
+                songs[count++] = song;
+            }
+        }
+        return Arrays.copyOf(songs, count);
+    }
+
+    /**
+     * Adds one candidate to the reachable totals, recording it as the first song to reach
+     * every total that was not reachable before.
+     * @param reachable the reachable totals as a bitset
+     * @param topMask the bits of the last word that are within the limit
+     * @param firstSong the first candidate to reach each total
+     * @param candidate index of the candidate
+     * @param seconds length of the candidate in seconds
+     */
+    private static void addCandidate(long[] reachable, long topMask, int[] firstSong, int candidate, int seconds) {
+        int wordShift = seconds >>> 6;
+        int bitShift = seconds & 63;
+        // From the top down, so every word read still holds the totals before this candidate
+        for (int w = reachable.length - 1; w >= wordShift; w--) {
+            long shifted = reachable[w - wordShift] << bitShift;
+            if (bitShift != 0 && w - wordShift > 0) {
+                shifted |= reachable[w - wordShift - 1] >>> (64 - bitShift);
+            }
+            if (w == reachable.length - 1) {
+                shifted &= topMask;
+            }
+            long fresh = shifted & ~reachable[w];
+            if (fresh != 0) {
+                reachable[w] |= fresh;
+                for (; fresh != 0; fresh &= fresh - 1) {
+                    firstSong[(w << 6) + Long.numberOfTrailingZeros(fresh)] = candidate;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether a total is reachable.
+     * @param reachable the reachable totals as a bitset
+     * @param total the total in seconds
+     * @return true if some selection has that total
+     */
+    private static boolean isReachable(long[] reachable, int total) {
+        return (reachable[total >>> 6] & (1L << total)) != 0;
+    }
+
+    /**
+     * Finds the reachable total nearest the target, preferring the shorter one on a tie.
+     * A total of 0, the empty selection, counts when the tolerance allows it.
+     * @param reachable the reachable totals as a bitset
+     * @param target the target in seconds
+     * @param tolerance the largest distance accepted
+     * @return the total, or -1 if none is within tolerance
+     */
+    private static int nearestReachable(long[] reachable, int target, int tolerance) {
+        for (int distance = 0; distance <= tolerance; distance++) {
+            if (target - distance >= 0 && isReachable(reachable, target - distance)) {
+                return target - distance;
+            }
+            if (isReachable(reachable, target + distance)) {
+                return target + distance;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the length of a song in seconds.
+     * @param song the song
+     * @return minutes * 60 + seconds
+     */
+    private static int seconds(SongRecord song) {
+        return song.getMinutes() * 60 + song.getSeconds();
+    }
+}
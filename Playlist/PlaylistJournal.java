@@ -0,0 +1,490 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * PlaylistJournal records every edit made to a Playlist so the edits can be undone,
+ * redone and, when the journal is backed by a log file, replayed after a crash.
+ *
+ * Each entry is an add, remove or move with its position, song count and, for adds and
+ * removes, references to the SongRecords involved. Entries live in parallel primitive
+ * arrays with the song references in one shared array, so the journal costs a few bytes
+ * per edit plus one reference per song, and recording, undoing or redoing an edit of k
+ * songs is O(k) work on top of the Playlist edit itself. Making a new edit after undoing
+ * discards the entries that could have been redone.
+ *
+ * A log file receives the same entries, with the song fields written out, plus a marker
+ * for every undo and redo, so the file is strictly append-only. Songs are written as
+ * PlaylistPatch.writeSong does, with each text field as an int byte count and its UTF-8
+ * bytes, so fields of any length can be logged. Every record is flushed and forced to disk
+ * before the edit returns, so a logged edit survives a power loss as well as a crash of
+ * the process, at the cost of one sync per edit. recover reads the log back and rebuilds
+ * both the Playlist and its undo history; a record cut short by a crash is dropped.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+public class PlaylistJournal implements Closeable {
+
+    /** Entry kind: songs were inserted */
+    private static final byte ADD = 0;
+
+    /** Entry kind: songs were removed */
+    private static final byte REMOVE = 1;
+
+    /** Entry kind: a range of songs was moved */
+    private static final byte MOVE = 2;
+
+    /** Log marker: the latest entry was undone */
+    private static final byte UNDO = 3;
+
+    /** Log marker: the next entry was redone */
+    private static final byte REDO = 4;
+
+    /** Log record holding the songs the Playlist had when the log was started */
+    private static final byte BASE = 5;
+
+    /** First bytes of a log file, "PLJ2" */
+    private static final int MAGIC = 0x504C4A32;
+
+    /** The Playlist whose edits are recorded */
+    private final Playlist playlist;
+
+    /** Kind of each entry */
+    private byte[] kinds;
+
+    /** Position (1-based) of the first song of each entry */
+    private int[] positions;
+
+    /** Number of songs affected by each entry */
+    private int[] counts;
+
+    /** For moves, the position the first moved song ended up at */
+    private int[] targets;
+
+    /** Index in songs of the first song of each entry */
+    private int[] songStarts;
+
+    /** Songs added or removed by the entries, back to back */
+    private SongRecord[] songs;
+
+    /** Number of entries recorded */
+    private int entryCount;
+
+    /** Number of entries currently applied, entries from here on can be redone */
+    private int cursor;
+
+    /** True while the journal itself is editing the Playlist */
+    private boolean applying;
+
+    /** The log file, or null for a journal kept only in memory */
+    private DataOutputStream log;
+
+    /** Channel the log is written through, forced after every record */
+    private FileChannel logChannel;
+
+    /**
+     * Starts recording the edits of a Playlist in memory.
+     * @param playlist the Playlist to record, replacing any journal it already has
+     */
+    public PlaylistJournal(Playlist playlist) {
+        this.playlist = playlist;
+        kinds = new byte[16];
+        positions = new int[16];
+        counts = new int[16];
+        targets = new int[16];
+        songStarts = new int[17];
+        songs = new SongRecord[16];
+        playlist.setJournal(this);
+    }
+
+    /**
+     * Starts recording the edits of a Playlist in memory and in a new log file.
+     * The songs the Playlist holds now are written first, so the log alone can rebuild it.
+     * @param playlist the Playlist to record, replacing any journal it already has
+     * @param logFile where to create the log, any existing file is replaced
+     * @throws IOException if the log cannot be written
+     */
+    public PlaylistJournal(Playlist playlist, Path logFile) throws IOException {
+        this(playlist);
+        openLog(FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                 StandardOpenOption.TRUNCATE_EXISTING));
+        log.writeInt(MAGIC);
+        SongRecord[] current = new SongRecord[playlist.size()];
+        playlist.copySongs(0, current.length, current);
+        writeRecord(BASE, 1, current.length, 0, current, current.length);
+    }
+
+    /**
+     * Rebuilds a Playlist and its undo history from a log file, and keeps appending to
+     * that log. A record that was only partly written is cut off the end of the file.
+     * @param logFile a log written by a PlaylistJournal
+     * @return a journal attached to the recovered Playlist
+     * @throws IOException if the log cannot be read or is not a journal log
+     */
+    public static PlaylistJournal recover(Path logFile) throws IOException {
+        Playlist playlist = new Playlist();
+        PlaylistJournal journal = null;
+        long goodLength;
+
+        try (CountingInputStream counter = new CountingInputStream(
+                new BufferedInputStream(Files.newInputStream(logFile)))) {
+            DataInputStream in = new DataInputStream(counter);
+            if (in.readInt() != MAGIC) {
+                throw new IOException(logFile + " is not a playlist journal");
+            }
+            goodLength = counter.count;
+            try {
+                while (true) {
+                    byte kind = in.readByte();
+                    if (kind == UNDO || kind == REDO) {
+                        if (journal == null || !(kind == UNDO ? journal.undo() : journal.redo())) {
+                            throw new IOException(logFile + " is corrupt");
+                        }
+                    } else {
+                        int position = in.readInt();
+                        int count = in.readInt();
+                        int target = in.readInt();
+                        SongRecord[] batch = kind == ADD || kind == BASE ? readSongs(in, count) : null;
+                        if (kind == BASE) {
+                            playlist.addAll(Arrays.asList(batch), 1);
+                            journal = new PlaylistJournal(playlist);
+                        } else if (journal == null) {
+                            throw new IOException(logFile + " is corrupt");
+                        } else if (kind == ADD) {
+                            playlist.addAll(Arrays.asList(batch), position);
+                        } else if (kind == REMOVE) {
+                            playlist.removeRange(position, position + count - 1);
+                        } else if (kind == MOVE) {
+                            playlist.moveRange(position, position + count - 1, target);
+                        } else {
+                            throw new IOException(logFile + " is corrupt");
+                        }
+                    }
+                    goodLength = counter.count;
+                }
+            } catch (EOFException e) {
+                // The last record was cut short, everything before goodLength is intact
+            } catch (IllegalArgumentException | FullPlaylistException e) {
+                throw new IOException(logFile + " is corrupt", e);
+            }
+        }
+        if (journal == null) {
+            throw new IOException(logFile + " holds no playlist");
+        }
+
+        FileChannel channel = FileChannel.open(logFile, StandardOpenOption.WRITE);
+        channel.truncate(goodLength);
+        channel.position(goodLength);
+        channel.force(false);
+        journal.openLog(channel);
+        return journal;
+    }
+
+    /**
+     * Gets the Playlist whose edits this journal records.
+     * @return the recorded Playlist
+     */
+    public Playlist getPlaylist() {
+        return playlist;
+    }
+
+    /**
+     * Determines whether there is an edit to undo.
+     * @return true if undo would change the Playlist
+     */
+    public boolean canUndo() {
+        return cursor > 0;
+    }
+
+    /**
+     * Determines whether there is an undone edit to redo.
+     * @return true if redo would change the Playlist
+     */
+    public boolean canRedo() {
+        return cursor < entryCount;
+    }
+
+    /**
+     * Reverts the latest edit that has not been undone.
+     * @return true if an edit was undone, false if there was nothing to undo
+     * @throws UncheckedIOException if the undo cannot be written to the log
+     */
+    public boolean undo() {
+        if (cursor == 0) {
+            return false;
+        }
+        cursor--;
+        int position = positions[cursor];
+        int count = counts[cursor];
+        applying = true;
+        try {
+            switch (kinds[cursor]) {
+                case ADD:
+                    playlist.removeRange(position, position + count - 1);
+                    break;
+                case REMOVE:
+                    playlist.addAll(Arrays.asList(songs).subList(songStarts[cursor], songStarts[cursor] + count),
+                                    position);
+                    break;
+                default:
+                    playlist.moveRange(targets[cursor], targets[cursor] + count - 1, position);
+                    break;
+            }
+        } catch (FullPlaylistException e) {
+            // The songs were in the Playlist before the edit, so they fit again
+            throw new IllegalStateException(e);
+        } finally {
+            applying = false;
+        }
+        writeMarker(UNDO);
+        return true;
+    }
+
+    /**
+     * Applies again the edit undone most recently.
+     * @return true if an edit was redone, false if there was nothing to redo
+     * @throws UncheckedIOException if the redo cannot be written to the log
+     */
+    public boolean redo() {
+        if (cursor == entryCount) {
+            return false;
+        }
+        int position = positions[cursor];
+        int count = counts[cursor];
+        applying = true;
+        try {
+            switch (kinds[cursor]) {
+                case ADD:
+                    playlist.addAll(Arrays.asList(songs).subList(songStarts[cursor], songStarts[cursor] + count),
+                                    position);
+                    break;
+                case REMOVE:
+                    playlist.removeRange(position, position + count - 1);
+                    break;
+                default:
+                    playlist.moveRange(position, position + count - 1, targets[cursor]);
+                    break;
+            }
+        } catch (FullPlaylistException e) {
+            // The Playlist is back in the state it was in when the songs fit
+            throw new IllegalStateException(e);
+        } finally {
+            applying = false;
+        }
+        cursor++;
+        writeMarker(REDO);
+        return true;
+    }
+
+    /**
+     * Flushes and closes the log file, if there is one. The in-memory history is kept.
+     * @throws IOException if the log cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (log != null) {
+            log.close();
+            log = null;
+            logChannel = null;
+        }
+    }
+
+    /**
+     * Records songs inserted into the Playlist.
+     * @param position the position of the first inserted song (1-based)
+     * @param added the inserted songs, in order
+     * @param count the number of songs of added that were inserted
+     */
+    void recordAdd(int position, SongRecord[] added, int count) {
+        record(ADD, position, count, 0, added);
+    }
+
+    /**
+     * Records songs removed from the Playlist.
+     * @param position the position the first removed song had (1-based)
+     * @param removed the removed songs, in order
+     * @param count the number of songs of removed that were removed
+     */
+    void recordRemove(int position, SongRecord[] removed, int count) {
+        record(REMOVE, position, count, 0, removed);
+    }
+
+    /**
+     * Records a range of songs moved within the Playlist.
+     * @param fromPosition the position the first moved song had (1-based)
+     * @param count the number of songs moved
+     * @param newPosition the position the first moved song has now (1-based)
+     */
+    void recordMove(int fromPosition, int count, int newPosition) {
+        record(MOVE, fromPosition, count, newPosition, null);
+    }
+
+    /**
+     * Appends an entry, discarding any entries that could have been redone.
+     * @param kind ADD, REMOVE or MOVE
+     * @param position the position of the first affected song
+     * @param count the number of songs affected
+     * @param target for MOVE, where the first song ended up
+     * @param batch for ADD and REMOVE, the songs affected; null for MOVE
+     */
+    private void record(byte kind, int position, int count, int target, SongRecord[] batch) {
+        if (applying) {
+            return;
+        }
+        int songCount = songStarts[cursor];
+        if (cursor < entryCount) {
+            Arrays.fill(songs, songCount, songStarts[entryCount], null);
+            entryCount = cursor;
+        }
+
+        if (entryCount == kinds.length) {
+            int capacity = kinds.length * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            songStarts = Arrays.copyOf(songStarts, capacity + 1);
+        }
+        int stored = batch == null ? 0 : count;
+        if (songCount + stored > songs.length) {
+            songs = Arrays.copyOf(songs, Math.max(songs.length * 2, songCount + stored));
+        }
+        if (batch != null) {
+            System.arraycopy(batch, 0, songs, songCount, count);
+        }
+
+        kinds[entryCount] = kind;
+        positions[entryCount] = position;
+        counts[entryCount] = count;
+        targets[entryCount] = target;
+        songStarts[entryCount + 1] = songCount + stored;
+        entryCount++;
+        cursor = entryCount;
+
+        if (log != null) {
+            try {
+                writeRecord(kind, position, count, target, kind == ADD ? batch : null, count);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Starts writing the log through a channel positioned where the next record goes.
+     * @param channel the open channel of the log file
+     */
+    private void openLog(FileChannel channel) {
+        logChannel = channel;
+        log = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    /**
+     * Writes an entry to the log, flushes it and forces it to disk.
+     * @param kind the record kind
+     * @param position the position of the first affected song
+     * @param count the number of songs affected
+     * @param target for MOVE, where the first song ended up
+     * @param batch the songs to write out, or null to write none
+     * @param songCount the number of songs of batch to write
+     * @throws IOException if the log cannot be written
+     */
+    private void writeRecord(byte kind, int position, int count, int target, SongRecord[] batch, int songCount)
+            throws IOException {
+        log.writeByte(kind);
+        log.writeInt(position);
+        log.writeInt(count);
+        log.writeInt(target);
+        if (batch != null) {
+            for (int i = 0; i < songCount; i++) {
+                PlaylistPatch.writeSong(log, batch[i]);
+            }
+        }
+        log.flush();
+        logChannel.force(false);
+    }
+
+    /**
+     * Writes an undo or redo marker to the log, if there is one, and forces it to disk.
+     * @param marker UNDO or REDO
+     * @throws UncheckedIOException if the log cannot be written
+     */
+    private void writeMarker(byte marker) {
+        if (log != null) {
+            try {
+                log.writeByte(marker);
+                log.flush();
+                logChannel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Reads the songs of an ADD or BASE record.
+     * @param in the log being read
+     * @param count the number of songs in the record
+     * @return the songs
+     * @throws IOException if the log cannot be read or holds an invalid length
+     */
+    private static SongRecord[] readSongs(DataInputStream in, int count) throws IOException {
+        if (count < 0) {
+            throw new IOException("Negative song count in journal");
+        }
+        SongRecord[] batch = new SongRecord[count];
+        for (int i = 0; i < count; i++) {
+            batch[i] = PlaylistPatch.readSong(in);
+        }
+        return batch;
+    }
+
+    /**
+     * Counts the bytes read through it, so recover knows where the last whole record ends.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        /** Number of bytes read so far */
+        long count;
+
+        /**
+         * Wraps a stream.
+         * @param in the stream to count
+         */
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
@@ -1,22 +1,45 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 /**
  * PlaylistOperations class provides a menu-driven interface for managing a playlist.
- * Users can add songs, remove songs, search by artist, and perform other playlist operations.
+ * Users can add songs, remove songs, search by artist, save and load playlist files,
+ * undo and redo their edits, and perform other playlist operations.
  */
 public class PlaylistOperations {
 
     /**
      * Main method that runs the playlist management application.
-     * Provides a menu-driven interface for various playlist operations.
+     * Provides a menu-driven interface for various playlist operations, or with
+     * "-batch [script]" runs a PlaylistBatch script from a file or standard input instead.
      * 
-     * @param args command line arguments (not used)
+     * @param args command line arguments, either none or -batch and an optional script file
+     * @throws IOException if a batch script cannot be read or its output cannot be written
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+
+        if (args.length > 0 && args[0].equals("-batch")) {
+            try (Reader script = args.length > 1
+                    ? Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8)
+                    : new InputStreamReader(System.in, StandardCharsets.UTF_8)) {
+                Writer results = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+                PlaylistBatch.run(script, results);
+            }
+            return;
+        }
 
         Scanner scanner = new Scanner(System.in);
         
         Playlist myplaylist = new Playlist();
+        PlaylistJournal journal = new PlaylistJournal(myplaylist);
         boolean run = true;
 
         while(run){
@@ -26,6 +49,11 @@ public class PlaylistOperations {
             System.out.println("R) Remove Song ");
             System.out.println("P) Print All Songs ");
             System.out.println("S) Size ");
+            System.out.println("L) Load Playlist File ");
+            System.out.println("W) Write Playlist File ");
+            System.out.println("I) Import Songs (M3U/CSV) ");
+            System.out.println("Z) Undo ");
+            System.out.println("Y) Redo ");
             System.out.println("Q) Quit ");
             System.out.println("Select a menu option:");
 
@@ -147,6 +175,59 @@ public class PlaylistOperations {
                     System.out.println("There are " + myplaylist.size() + " song(s) in the current playlist.");
                     break;
 
+                case "L":
+                    System.out.println("Enter the file name: ");
+                    String loadName = scanner.nextLine();
+                    try (PlaylistFile file = PlaylistFile.openReadOnly(Paths.get(loadName))) {
+                        myplaylist = file.toPlaylist();
+                        journal = new PlaylistJournal(myplaylist);
+                        System.out.println("Loaded " + myplaylist.size() + " song(s) from " + loadName);
+                    } catch (IOException e) {
+                        System.out.println("Could not load playlist: " + e.getMessage());
+                    }
+                    break;
+
+                case "W":
+                    System.out.println("Enter the file name: ");
+                    String saveName = scanner.nextLine();
+                    try {
+                        PlaylistFile.save(myplaylist, Paths.get(saveName));
+                        System.out.println("Saved " + myplaylist.size() + " song(s) to " + saveName);
+                    } catch (IOException e) {
+                        System.out.println("Could not save playlist: " + e.getMessage());
+                    }
+                    break;
+
+                case "I":
+                    System.out.println("Enter the file name: ");
+                    String importName = scanner.nextLine();
+                    try {
+                        SongImporter.Report report = SongImporter.importFile(Paths.get(importName),
+                                                                             myplaylist, myplaylist.size() + 1);
+                        System.out.println(report);
+                    } catch (IOException e) {
+                        System.out.println("Could not import songs: " + e.getMessage());
+                    } catch (FullPlaylistException e) {
+                        System.out.println(e.getMessage());
+                    }
+                    break;
+
+                case "Z":
+                    if (journal.undo()) {
+                        System.out.println("Last edit undone.");
+                    } else {
+                        System.out.println("Nothing to undo.");
+                    }
+                    break;
+
+                case "Y":
+                    if (journal.redo()) {
+                        System.out.println("Last undone edit redone.");
+                    } else {
+                        System.out.println("Nothing to redo.");
+                    }
+                    break;
+
                 case "Q":
                     run = false;
                     System.out.println("Program terminating normally...");
@@ -0,0 +1,303 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * PlaylistPatch is an edit script that turns one Playlist into another, made by
+ * PlaylistDiff.diff and replayed with Playlist.apply.
+ *
+ * A patch is a list of operations applied in order, each to the Playlist as the previous
+ * operations left it: remove a range of songs, insert new songs at a position, or move a
+ * range of songs to a new position. Only inserted songs are carried, so a patch is
+ * proportional to the number of changes rather than to the length of the Playlists.
+ * The size, content hash and an exact, case-sensitive hash of the source are recorded so a
+ * patch is never applied to a Playlist it was not made for, even one that only differs
+ * from the source in case.
+ *
+ * writeTo and readFrom move a patch between processes. The wire form is a magic number,
+ * the source size and hashes, the operation count, then per operation its kind, position,
+ * count and new position, followed for INSERT by the songs. Text is written as an int byte
+ * count and the UTF-8 bytes, so fields of any length survive.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+public class PlaylistPatch {
+
+    /** Operation kind: remove count songs starting at position */
+    static final int REMOVE = 0;
+
+    /** Operation kind: insert songs starting at position */
+    static final int INSERT = 1;
+
+    /** Operation kind: move count songs starting at position so they start at newPosition */
+    static final int MOVE = 2;
+
+    /** First int of the wire form, "PLP1" */
+    private static final int MAGIC = 0x504C5031;
+
+    /**
+     * A single step of the script.
+     */
+    static final class Operation {
+
+        /** REMOVE, INSERT or MOVE */
+        final int kind;
+
+        /** Position (1-based) of the first song removed, inserted or moved */
+        final int position;
+
+        /** Number of songs affected */
+        final int count;
+
+        /** For MOVE, the position (1-based) the first moved song ends up at */
+        final int newPosition;
+
+        /** For INSERT, the songs to insert; null otherwise */
+        final SongRecord[] songs;
+
+        /**
+         * Constructs an Operation.
+         * @param kind REMOVE, INSERT or MOVE
+         * @param position the position of the first affected song
+         * @param count the number of songs affected
+         * @param newPosition for MOVE, where the first song ends up
+         * @param songs for INSERT, the songs to insert
+         */
+        Operation(int kind, int position, int count, int newPosition, SongRecord[] songs) {
+            this.kind = kind;
+            this.position = position;
+            this.count = count;
+            this.newPosition = newPosition;
+            this.songs = songs;
+        }
+    }
+
+    /** The operations, in the order they are applied */
+    private final Operation[] operations;
+
+    /** Number of songs in the Playlist the patch was made from */
+    private final int sourceSize;
+
+    /** Content hash of the Playlist the patch was made from */
+    private final long sourceHash;
+
+    /** Exact content hash of the Playlist the patch was made from */
+    private final long sourceExactHash;
+
+    /**
+     * Constructs a PlaylistPatch.
+     * @param operations the operations, in order
+     * @param sourceSize the size of the source Playlist
+     * @param sourceHash the content hash of the source Playlist
+     * @param sourceExactHash the exact content hash of the source Playlist
+     */
+    PlaylistPatch(List<Operation> operations, int sourceSize, long sourceHash, long sourceExactHash) {
+        this.operations = operations.toArray(new Operation[0]);
+        this.sourceSize = sourceSize;
+        this.sourceHash = sourceHash;
+        this.sourceExactHash = sourceExactHash;
+    }
+
+    /**
+     * Determines the number of operations in this patch.
+     * @return 0 if the two Playlists were already equal
+     */
+    public int size() {
+        return operations.length;
+    }
+
+    /**
+     * Counts the songs this patch carries, which is the number of songs inserted.
+     * @return the number of SongRecords held by this patch
+     */
+    public int getInsertedSongCount() {
+        int count = 0;
+        for (Operation operation : operations) {
+            if (operation.kind == INSERT) {
+                count += operation.count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Replays the operations on a Playlist.
+     * @param playlist the Playlist to change, which must hold the source songs
+     * @throws IllegalArgumentException if playlist does not hold the songs the patch was made from
+     * @throws FullPlaylistException if the result would hold more than Integer.MAX_VALUE songs
+     */
+    void applyTo(Playlist playlist) throws IllegalArgumentException, FullPlaylistException {
+        if (playlist.size() != sourceSize || playlist.contentHash() != sourceHash
+                || playlist.exactContentHash() != sourceExactHash) {
+            throw new IllegalArgumentException("Patch was made for a different Playlist");
+        }
+        for (Operation operation : operations) {
+            switch (operation.kind) {
+                case REMOVE:
+                    playlist.removeRange(operation.position, operation.position + operation.count - 1);
+                    break;
+                case INSERT:
+                    playlist.addAll(Arrays.asList(operation.songs), operation.position);
+                    break;
+                default:
+                    playlist.moveRange(operation.position, operation.position + operation.count - 1,
+                                       operation.newPosition);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Writes this patch in its wire form.
+     * @param out the destination
+     * @throws IOException if out cannot be written
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(sourceSize);
+        out.writeLong(sourceHash);
+        out.writeLong(sourceExactHash);
+        out.writeInt(operations.length);
+        for (Operation operation : operations) {
+            out.writeByte(operation.kind);
+            out.writeInt(operation.position);
+            out.writeInt(operation.count);
+            out.writeInt(operation.newPosition);
+            if (operation.kind == INSERT) {
+                for (SongRecord song : operation.songs) {
+                    writeSong(out, song);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a patch written by writeTo.
+     * @param in the source
+     * @return the patch
+     * @throws IOException if in cannot be read or does not hold a patch
+     */
+    public static PlaylistPatch readFrom(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a playlist patch");
+        }
+        int sourceSize = in.readInt();
+        long sourceHash = in.readLong();
+        long sourceExactHash = in.readLong();
+        int operationCount = in.readInt();
+        if (sourceSize < 0 || operationCount < 0) {
+            throw new IOException("Negative count in patch");
+        }
+        // Counts are not trusted for preallocation, a corrupt one would exhaust memory
+        List<Operation> operations = new ArrayList<>(Math.min(operationCount, 1024));
+        for (int i = 0; i < operationCount; i++) {
+            int kind = in.readByte();
+            int position = in.readInt();
+            int count = in.readInt();
+            int newPosition = in.readInt();
+            if (kind < REMOVE || kind > MOVE || position < 1 || count < 0) {
+                throw new IOException("Invalid operation in patch");
+            }
+            SongRecord[] songs = null;
+            if (kind == INSERT) {
+                List<SongRecord> batch = new ArrayList<>(Math.min(count, 1024));
+                for (int k = 0; k < count; k++) {
+                    batch.add(readSong(in));
+                }
+                songs = batch.toArray(new SongRecord[0]);
+            }
+            operations.add(new Operation(kind, position, count, newPosition, songs));
+        }
+        return new PlaylistPatch(operations, sourceSize, sourceHash, sourceExactHash);
+    }
+
+    /**
+     * Writes a song as its title, artist, minutes and seconds. PlaylistJournal logs songs
+     * the same way.
+     * @param out the destination
+     * @param song the song to write
+     * @throws IOException if out cannot be written
+     */
+    static void writeSong(DataOutput out, SongRecord song) throws IOException {
+        writeText(out, song.getTitle());
+        writeText(out, song.getArtist());
+        out.writeByte(song.getMinutes());
+        out.writeByte(song.getSeconds());
+    }
+
+    /**
+     * Reads a song written by writeSong.
+     * @param in the source
+     * @return the song
+     * @throws IOException if in cannot be read or holds an invalid song
+     */
+    static SongRecord readSong(DataInput in) throws IOException {
+        SongRecord song = new SongRecord();
+        song.setTitle(readText(in));
+        song.setArtist(readText(in));
+        try {
+            song.setMinutes(in.readByte());
+            song.setSeconds(in.readByte());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid song length", e);
+        }
+        return song;
+    }
+
+    /**
+     * Writes text as an int byte count followed by its UTF-8 bytes.
+     * @param out the destination
+     * @param text the text, null is written as the empty String
+     * @throws IOException if out cannot be written
+     */
+    private static void writeText(DataOutput out, String text) throws IOException {
+        byte[] bytes = (text == null ? "" : text).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads text written by writeText.
+     * @param in the source
+     * @return the text
+     * @throws IOException if in cannot be read or holds a negative byte count
+     */
+    private static String readText(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Negative text length");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Lists the operations, one per line.
+     * @return the String representation of this patch
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Operation operation : operations) {
+            switch (operation.kind) {
+                case REMOVE:
+                    sb.append(String.format("Remove %d song(s) at %d\n", operation.count, operation.position));
+                    break;
+                case INSERT:
+                    sb.append(String.format("Insert %d song(s) at %d\n", operation.count, operation.position));
+                    break;
+                default:
+                    sb.append(String.format("Move %d song(s) from %d to %d\n",
+                                            operation.count, operation.position, operation.newPosition));
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+}
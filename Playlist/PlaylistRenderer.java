@@ -0,0 +1,251 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * PlaylistRenderer writes the table printed by Playlist.toString straight to an Appendable
+ * or a WritableByteChannel, a row at a time, without building the whole table in memory.
+ *
+ * Rows are formatted by hand with the same fixed-width columns as toString, so the output
+ * is identical character for character, but no String.format call or Formatter is made per
+ * row. Songs are copied out of the Playlist a block at a time, and a window of rows, given
+ * by an offset or a page number, only reads and formats the songs inside it, so rendering
+ * page 400 costs the same as rendering page 1.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+public class PlaylistRenderer {
+
+    /** The two header lines of the table */
+    static final String HEADER = "Position | Title                | Artist                    | Length\n"
+                               + "---------|----------------------|---------------------------|--------\n";
+
+    /** Width of the position column */
+    private static final int POSITION_WIDTH = 9;
+
+    /** Width of the title column */
+    private static final int TITLE_WIDTH = 21;
+
+    /** Width of the artist column */
+    private static final int ARTIST_WIDTH = 26;
+
+    /** Number of songs copied out of the Playlist at a time */
+    private static final int BLOCK = 512;
+
+    /** Size of the byte buffer used when writing to a channel */
+    private static final int CHANNEL_BUFFER_BYTES = 1 << 16;
+
+    /** Spaces copied in to pad a column */
+    private static final String SPACES = "                                ";
+
+    /**
+     * Writes the whole table: the header and one row per song.
+     * @param playlist the Playlist to render
+     * @param out where to write the table
+     * @throws IOException if out cannot be written
+     */
+    public static void render(Playlist playlist, Appendable out) throws IOException {
+        render(playlist, out, 1, playlist.size());
+    }
+
+    /**
+     * Writes the header and the rows of a window of songs.
+     * @param playlist the Playlist to render
+     * @param out where to write the table
+     * @param fromPosition the position (1-based) of the first row
+     * @param count the most rows to write; fewer are written at the end of the Playlist
+     * @throws IllegalArgumentException if fromPosition is less than 1 or count is negative
+     * @throws IOException if out cannot be written
+     */
+    public static void render(Playlist playlist, Appendable out, int fromPosition, int count)
+            throws IllegalArgumentException, IOException {
+        if (fromPosition < 1 || count < 0) {
+            throw new IllegalArgumentException("Invalid window of rows");
+        }
+        out.append(HEADER);
+        int from = (int) Math.min(fromPosition - 1L, playlist.size());
+        int to = (int) Math.min((long) from + count, playlist.size());
+
+        SongRecord[] block = new SongRecord[Math.min(BLOCK, to - from)];
+        for (int start = from; start < to; start += block.length) {
+            int end = Math.min(to, start + block.length);
+            playlist.copySongs(start, end, block);
+            for (int i = start; i < end; i++) {
+                appendRow(out, i + 1, block[i - start]);
+            }
+        }
+    }
+
+    /**
+     * Writes the header and one page of rows.
+     * @param playlist the Playlist to render
+     * @param out where to write the table
+     * @param page the page number (1-based)
+     * @param pageSize the number of rows per page
+     * @throws IllegalArgumentException if page or pageSize is less than 1
+     * @throws IOException if out cannot be written
+     */
+    public static void renderPage(Playlist playlist, Appendable out, int page, int pageSize)
+            throws IllegalArgumentException, IOException {
+        if (page < 1 || pageSize < 1) {
+            throw new IllegalArgumentException("Page and page size must be at least 1");
+        }
+        long first = (long) (page - 1) * pageSize + 1;
+        render(playlist, out, (int) Math.min(first, Integer.MAX_VALUE), pageSize);
+    }
+
+    /**
+     * Writes the whole table to a channel as UTF-8.
+     * @param playlist the Playlist to render
+     * @param channel where to write the table
+     * @throws IOException if the channel cannot be written
+     */
+    public static void render(Playlist playlist, WritableByteChannel channel) throws IOException {
+        render(playlist, channel, 1, playlist.size());
+    }
+
+    /**
+     * Writes the header and the rows of a window of songs to a channel as UTF-8.
+     * @param playlist the Playlist to render
+     * @param channel where to write the table
+     * @param fromPosition the position (1-based) of the first row
+     * @param count the most rows to write
+     * @throws IllegalArgumentException if fromPosition is less than 1 or count is negative
+     * @throws IOException if the channel cannot be written
+     */
+    public static void render(Playlist playlist, WritableByteChannel channel, int fromPosition, int count)
+            throws IllegalArgumentException, IOException {
+        ChannelAppendable out = new ChannelAppendable(channel);
+        render(playlist, out, fromPosition, count);
+        out.flush();
+    }
+
+    /**
+     * Writes one row in the format "%-9d%-21s%-26s%d:%02d\n".
+     * @param out where to write the row
+     * @param position the position of the song
+     * @param song the song
+     * @throws IOException if out cannot be written
+     */
+    static void appendRow(Appendable out, int position, SongRecord song) throws IOException {
+        appendPadded(out, Integer.toString(position), POSITION_WIDTH);
+        appendPadded(out, String.valueOf(song.getTitle()), TITLE_WIDTH);
+        appendPadded(out, String.valueOf(song.getArtist()), ARTIST_WIDTH);
+        out.append(Integer.toString(song.getMinutes())).append(':');
+        int seconds = song.getSeconds();
+        if (seconds < 10 && seconds >= 0) {
+            out.append('0');
+        }
+        out.append(Integer.toString(seconds)).append('\n');
+    }
+
+    /**
+     * Writes text left-justified in a column, padded with spaces but never cut short.
+     * @param out where to write
+     * @param text the text
+     * @param width the column width
+     * @throws IOException if out cannot be written
+     */
+    private static void appendPadded(Appendable out, String text, int width) throws IOException {
+        out.append(text);
+        for (int pad = width - text.length(); pad > 0; pad -= SPACES.length()) {
+            out.append(SPACES, 0, Math.min(pad, SPACES.length()));
+        }
+    }
+
+    /**
+     * Encodes appended text as UTF-8 into a byte buffer and writes the buffer to a channel
+     * whenever it fills up.
+     */
+    private static final class ChannelAppendable implements Appendable {
+
+        /** The channel written to */
+        private final WritableByteChannel channel;
+
+        /** Encodes characters to UTF-8 */
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        /** Bytes waiting to be written */
+        private final ByteBuffer bytes = ByteBuffer.allocate(CHANNEL_BUFFER_BYTES);
+
+        /** A character left over from a surrogate pair split across appends */
+        private final CharBuffer pending = CharBuffer.allocate(2);
+
+        /**
+         * Constructs a ChannelAppendable.
+         * @param channel the channel to write to
+         */
+        ChannelAppendable(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public Appendable append(CharSequence text) throws IOException {
+            return append(text, 0, text.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence text, int start, int end) throws IOException {
+            for (int i = start; i < end; i++) {
+                append(text.charAt(i));
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            if (c < 0x80 && pending.position() == 0) {
+                if (!bytes.hasRemaining()) {
+                    drain();
+                }
+                bytes.put((byte) c);
+                return this;
+            }
+            pending.put(c);
+            if (Character.isHighSurrogate(c) && pending.position() == 1) {
+                return this;
+            }
+            pending.flip();
+            while (true) {
+                CoderResult result = encoder.encode(pending, bytes, false);
+                if (result.isOverflow()) {
+                    drain();
+                } else if (result.isError()) {
+                    result.throwException();
+                } else {
+                    break;
+                }
+            }
+            pending.compact();
+            return this;
+        }
+
+        /**
+         * Writes every buffered byte to the channel.
+         * @throws IOException if the channel cannot be written
+         */
+        void flush() throws IOException {
+            drain();
+        }
+
+        /**
+         * Writes the bytes in the buffer to the channel and empties it.
+         * @throws IOException if the channel cannot be written
+         */
+        private void drain() throws IOException {
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            bytes.clear();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * PlaylistSpliterator traverses and splits a range of a read-only snapshot of a Playlist's
+ * storage.
+ *
+ * Because the snapshot is never modified, the songs seen are exactly those in the Playlist
+ * when the spliterator was created, whatever edits follow, and any number of threads may
+ * read it at once. A split hands off the first half of the remaining range, so every
+ * split is exact and even and the spliterator reports SIZED and SUBSIZED. Songs are read
+ * a block at a time into a small buffer rather than looked up one position at a time.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+class PlaylistSpliterator implements Spliterator<SongRecord> {
+
+    /** Number of songs read from the storage at a time */
+    private static final int BLOCK = 512;
+
+    /** Ranges shorter than this are not split further */
+    private static final int MIN_SPLIT = 1024;
+
+    /** The snapshot being traversed */
+    private final ChunkedSongList songs;
+
+    /** 0-based index of the next song to hand out */
+    private int index;
+
+    /** 0-based index after the last song of the range */
+    private final int end;
+
+    /** Songs read ahead, or null before the first read */
+    private SongRecord[] buffer;
+
+    /** Index in the storage of buffer[0] */
+    private int bufferStart;
+
+    /** Number of valid songs in buffer */
+    private int bufferCount;
+
+    /**
+     * Constructs a PlaylistSpliterator over a range of a snapshot.
+     * @param songs a snapshot nothing will modify
+     * @param index 0-based index of the first song
+     * @param end 0-based index after the last song
+     */
+    PlaylistSpliterator(ChunkedSongList songs, int index, int end) {
+        this.songs = songs;
+        this.index = index;
+        this.end = end;
+    }
+
+    /**
+     * Hands the next song to an action.
+     * @param action the action to perform
+     * @return false if no songs remain
+     */
+    @Override
+    public boolean tryAdvance(Consumer<? super SongRecord> action) {
+        if (index >= end) {
+            return false;
+        }
+        if (index >= bufferStart + bufferCount) {
+            fill();
+        }
+        action.accept(buffer[index++ - bufferStart]);
+        return true;
+    }
+
+    /**
+     * Hands every remaining song to an action, in order.
+     * @param action the action to perform
+     */
+    @Override
+    public void forEachRemaining(Consumer<? super SongRecord> action) {
+        while (index < end) {
+            if (index >= bufferStart + bufferCount) {
+                fill();
+            }
+            int stop = bufferStart + bufferCount;
+            for (; index < stop; index++) {
+                action.accept(buffer[index - bufferStart]);
+            }
+        }
+    }
+
+    /**
+     * Splits off the first half of the remaining songs.
+     * @return a spliterator over the first half, or null if too few songs remain
+     */
+    @Override
+    public Spliterator<SongRecord> trySplit() {
+        int remaining = end - index;
+        if (remaining < MIN_SPLIT) {
+            return null;
+        }
+        int middle = index + remaining / 2;
+        PlaylistSpliterator prefix = new PlaylistSpliterator(songs, index, middle);
+        index = middle;
+        return prefix;
+    }
+
+    /**
+     * Determines the number of songs not yet handed out.
+     * @return the exact number of remaining songs
+     */
+    @Override
+    public long estimateSize() {
+        return end - index;
+    }
+
+    /**
+     * Reports the characteristics of this spliterator.
+     * @return ORDERED, SIZED, SUBSIZED and IMMUTABLE
+     */
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+    }
+
+    /**
+     * Reads the block of songs starting at index into the buffer.
+     */
+    private void fill() {
+        if (buffer == null) {
+            buffer = new SongRecord[Math.min(BLOCK, end - index)];
+        }
+        bufferStart = index;
+        bufferCount = Math.min(buffer.length, end - index);
+        songs.copyRange(index, index + bufferCount, buffer, null);
+    }
+}
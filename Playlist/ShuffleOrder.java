@@ -0,0 +1,219 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * ShuffleOrder produces shuffled play orders for a Playlist without copying or moving any
+ * SongRecord. An order is an int array of 1-based positions: the i-th song to play is
+ * playlist.getSong(order[i]).
+ *
+ * Orders come from a seedable SplittableRandom, so the same seed applied to the same
+ * Playlist always gives the same order. An optional artist spacing keeps the same artist
+ * (ignoring case) from playing twice within that many tracks; it is applied on a best-effort
+ * basis, so a Playlist dominated by one artist still gets a complete order.
+ *
+ * The order and artist key arrays are reused between calls and only grow when a larger
+ * Playlist is shuffled, so generating a new order allocates nothing per track.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+public class ShuffleOrder {
+
+    /** Number of songs copied out of the Playlist at a time while computing artist keys */
+    private static final int SCAN_BLOCK = 4096;
+
+    /** Random positions tried when looking for a song that respects the artist spacing */
+    private static final int RANDOM_PROBES = 32;
+
+    /** Following positions scanned when the random probes all fail */
+    private static final int LINEAR_PROBES = 64;
+
+    /** Source of randomness for every order this object produces */
+    private final SplittableRandom random;
+
+    /** The most recent play order, only the first size entries are meaningful */
+    private int[] order;
+
+    /** Case-folded artist hash of each song by 0-based index, used for spacing */
+    private int[] artistKeys;
+
+    /** Scratch space for copying songs out of the Playlist */
+    private final SongRecord[] block;
+
+    /** Number of songs in the most recent order */
+    private int size;
+
+    /**
+     * Constructs a ShuffleOrder whose orders are reproducible from the seed.
+     * @param seed the seed for the random number generator
+     */
+    public ShuffleOrder(long seed) {
+        random = new SplittableRandom(seed);
+        order = new int[0];
+        artistKeys = new int[0];
+        block = new SongRecord[SCAN_BLOCK];
+        size = 0;
+    }
+
+    /**
+     * Generates a new uniformly random play order for a Playlist.
+     * @param playlist the Playlist to shuffle
+     * @return the play order as 1-based positions, valid until the next call on this object;
+     *         only the first playlist.size() entries are meaningful
+     */
+    public int[] shuffle(Playlist playlist) {
+        return shuffle(playlist, 0);
+    }
+
+    /**
+     * Generates a new random play order in which the same artist does not play twice within
+     * artistSpacing tracks wherever the Playlist makes that possible.
+     * @param playlist the Playlist to shuffle
+     * @param artistSpacing the minimum number of tracks between two songs by one artist,
+     *        or 0 for no constraint
+     * @return the play order as 1-based positions, valid until the next call on this object;
+     *         only the first playlist.size() entries are meaningful
+     * @throws IllegalArgumentException if artistSpacing is negative
+     */
+    public int[] shuffle(Playlist playlist, int artistSpacing) throws IllegalArgumentException {
+        if (artistSpacing < 0) {
+            throw new IllegalArgumentException("Artist spacing cannot be negative");
+        }
+
+        size = playlist.size();
+        if (order.length < size) {
+            order = new int[size];
+        }
+        for (int i = 0; i < size; i++) {
+            order[i] = i + 1;
+        }
+
+        // Fisher-Yates
+        for (int i = size - 1; i > 0; i--) {
+            swap(i, random.nextInt(i + 1));
+        }
+
+        if (artistSpacing > 0) {
+            computeArtistKeys(playlist);
+            spaceArtists(artistSpacing);
+        }
+        return order;
+    }
+
+    /**
+     * Determines the number of songs in the most recent order.
+     * @return the number of meaningful entries in the order array
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the i-th entry of the most recent order.
+     * @param i the 0-based index into the play order
+     * @return the 1-based Playlist position of the song played i-th
+     * @throws IllegalArgumentException if i is not within the most recent order
+     */
+    public int positionAt(int i) throws IllegalArgumentException {
+        if (i < 0 || i >= size) {
+            throw new IllegalArgumentException("Index must be between 0 and " + (size - 1));
+        }
+        return order[i];
+    }
+
+    /**
+     * Fills artistKeys with a case-folded hash of each song's artist, scanning the Playlist
+     * a block of songs at a time.
+     * @param playlist the Playlist being shuffled
+     */
+    private void computeArtistKeys(Playlist playlist) {
+        if (artistKeys.length < size) {
+            artistKeys = new int[size];
+        }
+        for (int from = 0; from < size; from += SCAN_BLOCK) {
+            int to = Math.min(size, from + SCAN_BLOCK);
+            playlist.copySongs(from, to, block);
+            for (int i = from; i < to; i++) {
+                artistKeys[i] = artistKey(block[i - from].getArtist());
+            }
+        }
+        Arrays.fill(block, null);
+    }
+
+    /**
+     * Walks the order once, and whenever a track repeats an artist from the previous
+     * spacing tracks, swaps in a later track that does not.
+     * @param spacing the minimum number of tracks between two songs by one artist
+     */
+    private void spaceArtists(int spacing) {
+        for (int i = 1; i < size; i++) {
+            if (!conflicts(order[i], i, spacing)) {
+                continue;
+            }
+            int remaining = size - i - 1;
+            if (remaining == 0) {
+                return;
+            }
+
+            int found = -1;
+            for (int probe = 0; probe < RANDOM_PROBES && found < 0; probe++) {
+                int j = i + 1 + random.nextInt(remaining);
+                if (!conflicts(order[j], i, spacing)) {
+                    found = j;
+                }
+            }
+            for (int j = i + 1; j < size && j <= i + LINEAR_PROBES && found < 0; j++) {
+                if (!conflicts(order[j], i, spacing)) {
+                    found = j;
+                }
+            }
+            if (found >= 0) {
+                swap(i, found);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a song would repeat an artist from the tracks just before slot i.
+     * @param position the 1-based position of the candidate song
+     * @param i the slot of the order the candidate would fill
+     * @param spacing how many previous tracks to compare against
+     * @return true if one of those tracks has the same artist key
+     */
+    private boolean conflicts(int position, int i, int spacing) {
+        int key = artistKeys[position - 1];
+        for (int k = Math.max(0, i - spacing); k < i; k++) {
+            if (artistKeys[order[k] - 1] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Exchanges two entries of the order.
+     * @param i the first slot
+     * @param j the second slot
+     */
+    private void swap(int i, int j) {
+        int held = order[i];
+        order[i] = order[j];
+        order[j] = held;
+    }
+
+    /**
+     * Hashes an artist name ignoring case without allocating. Artists whose names collide
+     * are treated as one artist, which only costs some extra spacing.
+     * @param artist the artist name, null is treated as the empty String
+     * @return the case-folded hash
+     */
+    private static int artistKey(String artist) {
+        int h = 0;
+        if (artist != null) {
+            for (int i = 0; i < artist.length(); i++) {
+                h = 31 * h + Character.toLowerCase(Character.toUpperCase(artist.charAt(i)));
+            }
+        }
+        return h;
+    }
+}
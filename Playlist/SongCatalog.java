@@ -0,0 +1,239 @@
+import java.util.Arrays;
+
+/**
+ * SongCatalog is a library of distinct tracks shared by many Playlists.
+ *
+ * Each distinct song, by title, artist and length, is held once as a canonical SongRecord
+ * with a small int id and a count of the Playlist entries that refer to it. A Playlist
+ * built on a catalog swaps every song it is given for the canonical one, so a thousand
+ * Playlists holding the same track share a single SongRecord and its Strings, and heap
+ * use grows with the number of distinct tracks rather than with the number of entries.
+ * When the last entry referring to a track is removed its slot is freed and its id is
+ * handed out again.
+ *
+ * Songs are found through an open-addressing table keyed by SongFingerprint, with linear
+ * probing and backward-shift deletion, and matched exactly with Playlist.songsEqual so
+ * songs differing only in case stay distinct. A SongCatalog is not synchronized.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+public class SongCatalog {
+
+    /** The canonical SongRecord of each id, null for a free id */
+    private SongRecord[] songs;
+
+    /** SongFingerprint of each id */
+    private long[] fingerprints;
+
+    /** Number of Playlist entries referring to each id, 0 for a free id */
+    private int[] references;
+
+    /** Number of ids ever handed out, so ids below this are live or on the free list */
+    private int highWater;
+
+    /** Freed ids waiting to be reused */
+    private int[] freeIds;
+
+    /** Number of ids in freeIds */
+    private int freeCount;
+
+    /** Open-addressing table of id + 1 per slot, 0 marks an empty slot */
+    private int[] table;
+
+    /**
+     * Constructs an empty SongCatalog.
+     */
+    public SongCatalog() {
+        songs = new SongRecord[64];
+        fingerprints = new long[64];
+        references = new int[64];
+        freeIds = new int[16];
+        table = new int[128];
+    }
+
+    /**
+     * Determines the number of distinct tracks currently referred to by some Playlist entry.
+     * @return the number of live tracks
+     */
+    public int size() {
+        return highWater - freeCount;
+    }
+
+    /**
+     * Adds a reference to a song, adding the song to the catalog if no equal song is in it.
+     * @param song the song to look up
+     * @return the id of the canonical SongRecord equal to song
+     * @throws IllegalArgumentException if song is null
+     */
+    public int acquire(SongRecord song) throws IllegalArgumentException {
+        if (song == null) {
+            throw new IllegalArgumentException("Song cannot be null");
+        }
+        long fingerprint = SongFingerprint.of(song);
+        int mask = table.length - 1;
+        int slot = spread(fingerprint) & mask;
+        for (; table[slot] != 0; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (fingerprints[id] == fingerprint && Playlist.songsEqual(songs[id], song)) {
+                references[id]++;
+                return id;
+            }
+        }
+
+        int id = freeCount > 0 ? freeIds[--freeCount] : newId();
+        songs[id] = song;
+        fingerprints[id] = fingerprint;
+        references[id] = 1;
+        table[slot] = id + 1;
+        if (size() * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return id;
+    }
+
+    /**
+     * Drops a reference to a track, removing the track once nothing refers to it.
+     * @param id the id returned by acquire
+     * @throws IllegalArgumentException if id is not a live track
+     */
+    public void release(int id) throws IllegalArgumentException {
+        checkLive(id);
+        if (--references[id] > 0) {
+            return;
+        }
+
+        int mask = table.length - 1;
+        int hole = spread(fingerprints[id]) & mask;
+        while (table[hole] != id + 1) {
+            hole = (hole + 1) & mask;
+        }
+        // Shift later entries of the probe run back so no lookup stops early at the hole
+        for (int slot = (hole + 1) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int home = spread(fingerprints[table[slot] - 1]) & mask;
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                table[hole] = table[slot];
+                hole = slot;
+            }
+        }
+        table[hole] = 0;
+
+        songs[id] = null;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = id;
+    }
+
+    /**
+     * Finds the id of a song without adding a reference.
+     * @param song the song to look up
+     * @return the id of the canonical SongRecord equal to song, or -1 if there is none
+     */
+    public int idOf(SongRecord song) {
+        if (song == null) {
+            return -1;
+        }
+        long fingerprint = SongFingerprint.of(song);
+        int mask = table.length - 1;
+        for (int slot = spread(fingerprint) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (fingerprints[id] == fingerprint && Playlist.songsEqual(songs[id], song)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the canonical SongRecord of a track.
+     * @param id the id returned by acquire
+     * @return the shared SongRecord, which must not be modified
+     * @throws IllegalArgumentException if id is not a live track
+     */
+    public SongRecord getSong(int id) throws IllegalArgumentException {
+        checkLive(id);
+        return songs[id];
+    }
+
+    /**
+     * Gets the number of Playlist entries referring to a track.
+     * @param id the id returned by acquire
+     * @return the reference count, at least 1
+     * @throws IllegalArgumentException if id is not a live track
+     */
+    public int getReferenceCount(int id) throws IllegalArgumentException {
+        checkLive(id);
+        return references[id];
+    }
+
+    /**
+     * Adds a reference to a song and returns the canonical SongRecord to store in its place.
+     * @param song the song being added to a Playlist
+     * @return the shared SongRecord equal to song
+     */
+    SongRecord intern(SongRecord song) {
+        int id = acquire(song);
+        return songs[id];
+    }
+
+    /**
+     * Drops the reference held by a Playlist entry that is being removed.
+     * @param song the canonical SongRecord the entry held
+     */
+    void release(SongRecord song) {
+        release(idOf(song));
+    }
+
+    /**
+     * Hands out the next never-used id, growing the per-id arrays when they are full.
+     * @return the new id
+     */
+    private int newId() {
+        if (highWater == songs.length) {
+            int capacity = songs.length * 2;
+            songs = Arrays.copyOf(songs, capacity);
+            fingerprints = Arrays.copyOf(fingerprints, capacity);
+            references = Arrays.copyOf(references, capacity);
+        }
+        return highWater++;
+    }
+
+    /**
+     * Rebuilds the table at a new capacity.
+     * @param capacity the new number of slots, a power of two
+     */
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < highWater; id++) {
+            if (references[id] > 0) {
+                int slot = spread(fingerprints[id]) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = id + 1;
+            }
+        }
+    }
+
+    /**
+     * Checks that an id refers to a live track.
+     * @param id the id to check
+     * @throws IllegalArgumentException if id is not a live track
+     */
+    private void checkLive(int id) throws IllegalArgumentException {
+        if (id < 0 || id >= highWater || references[id] == 0) {
+            throw new IllegalArgumentException("No track with id " + id + " in the catalog");
+        }
+    }
+
+    /**
+     * Folds the high bits of a fingerprint into the low bits used to pick a slot.
+     * @param fingerprint a song fingerprint
+     * @return the slot hash
+     */
+    private static int spread(long fingerprint) {
+        return (int) (fingerprint ^ (fingerprint >>> 32));
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * SongFingerprint reduces a SongRecord to a 64-bit hash of its normalized content.
+ *
+ * Title and artist are normalized by ignoring case (the same way String.equalsIgnoreCase
+ * does), dropping leading and trailing whitespace and treating any run of whitespace as a
+ * single space. Two songs whose normalized title, artist and total length in seconds are
+ * equal always have the same fingerprint; songs that differ in any of them collide with
+ * probability about 2^-64 per pair. Fingerprints are computed without allocating.
+ *
+ * exact is the case-preserving variant: it hashes every character as stored, so it tells
+ * apart exactly the songs Playlist.songsEqual does.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+public final class SongFingerprint {
+
+    /** FNV-1a 64-bit offset basis */
+    private static final long OFFSET_BASIS = 0xCBF29CE484222325L;
+
+    /** FNV-1a 64-bit prime */
+    private static final long PRIME = 0x100000001B3L;
+
+    /**
+     * No instances, this class only has static methods.
+     */
+    private SongFingerprint() {
+    }
+
+    /**
+     * Computes the fingerprint of a song.
+     * @param song the song to fingerprint
+     * @return the 64-bit fingerprint of its normalized title, artist and length
+     */
+    public static long of(SongRecord song) {
+        long h = OFFSET_BASIS;
+        h = hashField(h, song.getTitle());
+        h = hashField(h, song.getArtist());
+        h = (h ^ (song.getMinutes() * 60L + song.getSeconds())) * PRIME;
+        return finish(h);
+    }
+
+    /**
+     * Computes the exact fingerprint of a song, which keeps case and whitespace.
+     * @param song the song to fingerprint
+     * @return the 64-bit fingerprint of its title, artist and length exactly as stored
+     */
+    public static long exact(SongRecord song) {
+        long h = OFFSET_BASIS;
+        h = hashExactField(h, song.getTitle());
+        h = hashExactField(h, song.getArtist());
+        h = (h ^ (song.getMinutes() * 60L + song.getSeconds())) * PRIME;
+        return finish(h);
+    }
+
+    /**
+     * Mixes every character of a field into a running hash, followed by a separator.
+     * @param h the running hash
+     * @param text the field, null is treated as the empty String
+     * @return the updated hash
+     */
+    private static long hashExactField(long h, String text) {
+        if (text != null) {
+            for (int i = 0; i < text.length(); i++) {
+                h = (h ^ text.charAt(i)) * PRIME;
+            }
+        }
+        // 0xFFFF is a noncharacter that real titles and artists do not contain
+        return (h ^ 0xFFFF) * PRIME;
+    }
+
+    /**
+     * Mixes one normalized field into a running hash, ending it with a separator so that
+     * moving characters between title and artist changes the result.
+     * @param h the running hash
+     * @param text the field, null is treated as the empty String
+     * @return the updated hash
+     */
+    private static long hashField(long h, String text) {
+        if (text != null) {
+            boolean pendingSpace = false;
+            boolean started = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    pendingSpace = started;
+                    continue;
+                }
+                if (pendingSpace) {
+                    h = (h ^ ' ') * PRIME;
+                    pendingSpace = false;
+                }
+                h = (h ^ Character.toLowerCase(Character.toUpperCase(c))) * PRIME;
+                started = true;
+            }
+        }
+        // 0xFFFF is a noncharacter that real titles and artists do not contain
+        return (h ^ 0xFFFF) * PRIME;
+    }
+
+    /**
+     * Spreads the bits of a hash so that every input bit affects every output bit.
+     * @param h the hash to finish
+     * @return the finished hash
+     */
+    private static long finish(long h) {
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+}
@@ -0,0 +1,376 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * SongImporter bulk loads vendor track lists into a Playlist.
+ *
+ * Two formats are understood, chosen by file extension:
+ * <ul>
+ *   <li>M3U (.m3u, .m3u8): every "#EXTINF:seconds,Artist - Title" line is one song, the
+ *       media path lines and other comments are ignored.</li>
+ *   <li>CSV (anything else): one "title,artist,minutes,seconds" row per line. Fields may be
+ *       quoted with double quotes, with "" for a literal quote, but may not contain line
+ *       breaks. A first line reading exactly "title,artist,minutes,seconds", in any case, is
+ *       treated as a header. A leading UTF-8 byte order mark is ignored.</li>
+ * </ul>
+ * The file is memory mapped and split into byte ranges at line boundaries, and the ranges
+ * are parsed in parallel on a fork-join pool. Each row is validated with the same rules as
+ * SongRecord.setMinutes and SongRecord.setSeconds; rows that fail are counted and skipped.
+ * The accepted songs keep their file order and are handed to Playlist.addAll in one batch.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+public class SongImporter {
+
+    /** Ranges at most this many bytes long are parsed by a single task */
+    private static final int SPLIT_BYTES = 1 << 20;
+
+    /** The optional header row of a CSV file */
+    private static final String CSV_HEADER = "title,artist,minutes,seconds";
+
+    /** A UTF-8 byte order mark once decoded */
+    private static final char BOM = '\uFEFF';
+
+    /**
+     * Summary of one import.
+     */
+    public static class Report {
+
+        /** Number of rows added to the Playlist */
+        private final int accepted;
+
+        /** Number of rows that could not be parsed or failed validation */
+        private final int rejected;
+
+        /** Time taken to parse and insert, in nanoseconds */
+        private final long elapsedNanos;
+
+        /**
+         * Constructs a Report.
+         * @param accepted number of rows added
+         * @param rejected number of rows skipped
+         * @param elapsedNanos time taken in nanoseconds
+         */
+        Report(int accepted, int rejected, long elapsedNanos) {
+            this.accepted = accepted;
+            this.rejected = rejected;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Returns the number of rows added to the Playlist.
+         * @return the accepted row count
+         */
+        public int getAccepted() {
+            return accepted;
+        }
+
+        /**
+         * Returns the number of rows that were skipped.
+         * @return the rejected row count
+         */
+        public int getRejected() {
+            return rejected;
+        }
+
+        /**
+         * Returns the number of rows, accepted or rejected, handled per second.
+         * @return the import throughput in rows per second
+         */
+        public double getRowsPerSecond() {
+            return (accepted + rejected) * 1e9 / Math.max(elapsedNanos, 1);
+        }
+
+        /**
+         * Returns a one line summary of the import.
+         * @return the formatted report
+         */
+        @Override
+        public String toString() {
+            return String.format("Imported %d song(s), rejected %d row(s), %.0f rows/sec",
+                                 accepted, rejected, getRowsPerSecond());
+        }
+    }
+
+    /**
+     * Imports a track list into a Playlist using the common fork-join pool.
+     * @param path the M3U or CSV file to read
+     * @param playlist the Playlist to add the songs to
+     * @param position the position where the first imported song will be inserted (1-based)
+     * @return a Report of the rows accepted and rejected and the rows per second
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if position is not within the valid range
+     * @throws FullPlaylistException if the songs do not fit in the Playlist
+     */
+    public static Report importFile(Path path, Playlist playlist, int position)
+            throws IOException, IllegalArgumentException, FullPlaylistException {
+        return importFile(path, playlist, position, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Imports a track list into a Playlist, parsing on the given pool.
+     * @param path the M3U or CSV file to read
+     * @param playlist the Playlist to add the songs to
+     * @param position the position where the first imported song will be inserted (1-based)
+     * @param pool the pool that parses the byte ranges
+     * @return a Report of the rows accepted and rejected and the rows per second
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if position is not within the valid range
+     * @throws FullPlaylistException if the songs do not fit in the Playlist
+     */
+    public static Report importFile(Path path, Playlist playlist, int position, ForkJoinPool pool)
+            throws IOException, IllegalArgumentException, FullPlaylistException {
+        if (position < 1 || position > playlist.size() + 1) {
+            throw new IllegalArgumentException("Invalid position for adding the new songs");
+        }
+
+        long start = System.nanoTime();
+        String name = path.getFileName().toString().toLowerCase();
+        boolean m3u = name.endsWith(".m3u") || name.endsWith(".m3u8");
+
+        ParsedRange parsed;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Track lists larger than 2 GB are not supported");
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            parsed = pool.invoke(new ParseTask(map, 0, (int) channel.size(), m3u));
+        }
+
+        List<SongRecord> songs = new ArrayList<>(parsed.songCount);
+        for (List<SongRecord> piece : parsed.pieces) {
+            songs.addAll(piece);
+        }
+        playlist.addAll(songs, position);
+        return new Report(songs.size(), parsed.rejected, System.nanoTime() - start);
+    }
+
+    /**
+     * Songs parsed from one byte range, in file order. The songs stay in the lists the leaf
+     * tasks built, so joining two ranges only links their lists and every song is copied
+     * once, when the root concatenates them.
+     */
+    private static class ParsedRange {
+
+        /** The rows that passed validation, one list per leaf task */
+        final List<List<SongRecord>> pieces = new ArrayList<>();
+
+        /** Number of songs across all pieces */
+        int songCount;
+
+        /** Number of rows that did not */
+        int rejected;
+    }
+
+    /**
+     * Parses a byte range of the file, splitting it in half at a line boundary while it is
+     * larger than SPLIT_BYTES.
+     */
+    private static class ParseTask extends RecursiveTask<ParsedRange> {
+
+        /** Version of the serialized form */
+        private static final long serialVersionUID = 1L;
+
+        /** The mapped file, only read with absolute gets */
+        private final MappedByteBuffer map;
+
+        /** Offset of the first byte of the range, always the start of a line */
+        private final int from;
+
+        /** Offset after the last byte of the range, always the start of a line or the end */
+        private final int to;
+
+        /** True for M3U, false for CSV */
+        private final boolean m3u;
+
+        /**
+         * Constructs a task for one range.
+         * @param map the mapped file
+         * @param from start of the range
+         * @param to end of the range
+         * @param m3u true to parse M3U, false to parse CSV
+         */
+        ParseTask(MappedByteBuffer map, int from, int to, boolean m3u) {
+            this.map = map;
+            this.from = from;
+            this.to = to;
+            this.m3u = m3u;
+        }
+
+        @Override
+        protected ParsedRange compute() {
+            if (to - from > SPLIT_BYTES) {
+                int mid = lineStartAfter(from + (to - from) / 2);
+                if (mid > from && mid < to) {
+                    ParseTask left = new ParseTask(map, from, mid, m3u);
+                    left.fork();
+                    ParsedRange right = new ParseTask(map, mid, to, m3u).compute();
+                    ParsedRange result = left.join();
+                    result.pieces.addAll(right.pieces);
+                    result.songCount += right.songCount;
+                    result.rejected += right.rejected;
+                    return result;
+                }
+            }
+            return parse();
+        }
+
+        /**
+         * Finds the first line that starts at or after an offset.
+         * @param offset an offset within the range
+         * @return the offset just after the next line break, or to if there is none
+         */
+        private int lineStartAfter(int offset) {
+            for (int i = offset; i < to; i++) {
+                if (map.get(i) == '\n') {
+                    return i + 1;
+                }
+            }
+            return to;
+        }
+
+        /**
+         * Parses every line of the range sequentially.
+         * @return the parsed songs and the number of rejected rows
+         */
+        private ParsedRange parse() {
+            byte[] bytes = new byte[to - from];
+            map.get(from, bytes);
+            ParsedRange result = new ParsedRange();
+            List<SongRecord> songs = new ArrayList<>();
+
+            int lineStart = 0;
+            while (lineStart < bytes.length) {
+                int lineEnd = lineStart;
+                while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+                    lineEnd++;
+                }
+                int length = lineEnd - lineStart;
+                if (length > 0 && bytes[lineEnd - 1] == '\r') {
+                    length--;
+                }
+                String line = new String(bytes, lineStart, length, StandardCharsets.UTF_8);
+                boolean first = from == 0 && lineStart == 0;
+                if (first && !line.isEmpty() && line.charAt(0) == BOM) {
+                    line = line.substring(1);
+                }
+                lineStart = lineEnd + 1;
+
+                boolean skip = m3u ? !line.startsWith("#EXTINF:")
+                                   : line.isBlank() || (first && line.trim().equalsIgnoreCase(CSV_HEADER));
+                if (skip) {
+                    continue;
+                }
+                SongRecord song = m3u ? parseExtinf(line) : parseCsv(line);
+                if (song == null) {
+                    result.rejected++;
+                } else {
+                    songs.add(song);
+                }
+            }
+            result.pieces.add(songs);
+            result.songCount = songs.size();
+            return result;
+        }
+    }
+
+    /**
+     * Parses an "#EXTINF:seconds,Artist - Title" line.
+     * @param line the line to parse
+     * @return the song, or null if the line is malformed or the length is invalid
+     */
+    static SongRecord parseExtinf(String line) {
+        int comma = line.indexOf(',');
+        if (comma < 0) {
+            return null;
+        }
+        // Attributes such as tvg-id="..." may follow the duration
+        String duration = line.substring("#EXTINF:".length(), comma).trim().split("\\s+")[0];
+        String name = line.substring(comma + 1).trim();
+        int dash = name.indexOf(" - ");
+        String artist = dash < 0 ? "" : name.substring(0, dash).trim();
+        String title = dash < 0 ? name : name.substring(dash + 3).trim();
+
+        try {
+            int total = (int) Double.parseDouble(duration);
+            if (total < 0) {
+                return null;
+            }
+            return song(title, artist, total / 60, total % 60);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses a "title,artist,minutes,seconds" row.
+     * @param line the line to parse
+     * @return the song, or null if the row is malformed or the length is invalid
+     */
+    static SongRecord parseCsv(String line) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+
+        if (fields.size() != 4) {
+            return null;
+        }
+        try {
+            return song(fields.get(0).trim(), fields.get(1).trim(),
+                        Integer.parseInt(fields.get(2).trim()), Integer.parseInt(fields.get(3).trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Builds a SongRecord, validating the length through its setters.
+     * @param title the song title
+     * @param artist the song artist
+     * @param minutes the minutes of the song length
+     * @param seconds the seconds of the song length
+     * @return the song, or null if SongRecord rejects the length
+     */
+    private static SongRecord song(String title, String artist, int minutes, int seconds) {
+        SongRecord song = new SongRecord();
+        song.setTitle(title);
+        song.setArtist(artist);
+        try {
+            song.setMinutes(minutes);
+            song.setSeconds(seconds);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return song;
+    }
+}
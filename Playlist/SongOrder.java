@@ -0,0 +1,19 @@
+/**
+ * SongOrder names the orders a sorted view of a Playlist can be kept in.
+ * Titles and artists are compared ignoring case; songs that compare equal keep their
+ * playlist order.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+public enum SongOrder {
+
+    /** Alphabetical by title */
+    TITLE,
+
+    /** Alphabetical by artist */
+    ARTIST,
+
+    /** Shortest first, by minutes and seconds */
+    LENGTH
+}
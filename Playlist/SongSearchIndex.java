@@ -0,0 +1,383 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * SongSearchIndex answers type-ahead queries over the titles and artists of a Playlist.
+ *
+ * Two structures are kept, both case-folded the same way as Playlist.foldCase:
+ * <ul>
+ *   <li>A sorted map from every distinct title and artist to the songs that have it.
+ *       A prefix query walks the map from the prefix onwards and stops at the first key
+ *       that no longer starts with it, so it costs O(log n + results).</li>
+ *   <li>Posting lists from every unigram, bigram and trigram (one, two or three
+ *       consecutive characters) of a title or artist to the songs containing it, in an
+ *       open-addressing table. A substring query takes the shortest posting list among its
+ *       grams and checks each candidate, so a rare gram anywhere in the query keeps the
+ *       work small. A one character query reads its unigram list and stops at the limit,
+ *       so it never scans the distinct titles and artists.</li>
+ * </ul>
+ *
+ * Songs are held by reference, so the index never needs positions or order labels and
+ * is not disturbed by moves. Each song is listed once however many times it occurs in the
+ * Playlist, and a count of its occurrences decides whether it is still live. Removing the
+ * last occurrence only drops the count to zero; queries skip such stale songs, and once
+ * there are as many stale songs as live ones every list is compacted in one pass. Adding
+ * and removing a song are therefore O(length of its fields), amortized.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+class SongSearchIndex {
+
+    /** Stale songs tolerated before compacting regardless of how many songs are live */
+    private static final int MIN_STALE = 1024;
+
+    /**
+     * An unordered, growable list of songs.
+     */
+    private static final class Posting {
+
+        /** Songs in this list, only the first size slots are in use */
+        SongRecord[] songs = new SongRecord[2];
+
+        /** Number of songs in this list */
+        int size;
+
+        /**
+         * Adds a song to the end of the list.
+         * @param song the song to add
+         */
+        void add(SongRecord song) {
+            if (size == songs.length) {
+                songs = Arrays.copyOf(songs, size * 2);
+            }
+            songs[size++] = song;
+        }
+    }
+
+    /** Number of occurrences in the Playlist of every indexed song, 0 for stale songs */
+    private final IdentityHashMap<SongRecord, Integer> occurrences = new IdentityHashMap<>();
+
+    /** Number of indexed songs that no longer occur in the Playlist */
+    private int stale;
+
+    /** Every distinct case-folded title and artist, mapped to the songs that have it */
+    private final TreeMap<String, Posting> fields = new TreeMap<>();
+
+    /** Open-addressing table of packed grams, 0 marks an empty slot */
+    private long[] gramKeys = new long[1024];
+
+    /** Posting list of the gram in the same slot of gramKeys */
+    private Posting[] gramPostings = new Posting[1024];
+
+    /** Number of distinct grams in the table */
+    private int gramCount;
+
+    /**
+     * Adds an occurrence of a song to the index.
+     * @param song the song to add
+     */
+    void add(SongRecord song) {
+        Integer count = occurrences.put(song, occurrences.getOrDefault(song, 0) + 1);
+        if (count != null) {
+            if (count == 0) {
+                stale--;
+            }
+            return;
+        }
+
+        String title = Playlist.foldCase(song.getTitle());
+        String artist = Playlist.foldCase(song.getArtist());
+        fields.computeIfAbsent(title, key -> new Posting()).add(song);
+        if (!artist.equals(title)) {
+            fields.computeIfAbsent(artist, key -> new Posting()).add(song);
+        }
+        for (long gram : gramsOf(title, artist)) {
+            postingFor(gram).add(song);
+        }
+    }
+
+    /**
+     * Removes an occurrence of a song from the index.
+     * The song's title and artist must not have changed since it was added.
+     * @param song the song to remove
+     */
+    void remove(SongRecord song) {
+        Integer count = occurrences.get(song);
+        if (count == null || count == 0) {
+            return;
+        }
+        occurrences.put(song, count - 1);
+        if (count == 1 && ++stale >= Math.max(MIN_STALE, occurrences.size() - stale)) {
+            compact();
+        }
+    }
+
+    /**
+     * Finds songs whose title or artist starts with a prefix, ignoring case.
+     * @param prefix the text typed so far
+     * @param limit the maximum number of songs to return
+     * @return up to limit distinct songs, ordered by the matching title or artist
+     */
+    List<SongRecord> prefix(String prefix, int limit) {
+        String folded = Playlist.foldCase(prefix);
+        Set<SongRecord> found = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<SongRecord> results = new ArrayList<>();
+
+        for (Map.Entry<String, Posting> entry : fields.tailMap(folded, true).entrySet()) {
+            if (!entry.getKey().startsWith(folded)) {
+                break;
+            }
+            if (collect(entry.getValue(), null, found, results, limit)) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Finds songs whose title or artist contains some text, ignoring case.
+     * @param text the text typed so far
+     * @param limit the maximum number of songs to return
+     * @return up to limit distinct songs, in no particular order
+     */
+    List<SongRecord> substring(String text, int limit) {
+        String folded = Playlist.foldCase(text);
+        Set<SongRecord> found = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<SongRecord> results = new ArrayList<>();
+
+        if (folded.isEmpty()) {
+            // Every field matches, so this stops after the first few
+            for (Posting posting : fields.values()) {
+                if (collect(posting, null, found, results, limit)) {
+                    break;
+                }
+            }
+            return results;
+        }
+
+        int length = Math.min(3, folded.length());
+        Posting shortest = null;
+        for (int i = 0; i + length <= folded.length(); i++) {
+            Posting posting = gramPostings[slotOf(pack(folded, i, length))];
+            if (posting == null) {
+                return results;
+            }
+            if (shortest == null || posting.size < shortest.size) {
+                shortest = posting;
+            }
+        }
+        collect(shortest, folded, found, results, limit);
+        return results;
+    }
+
+    /**
+     * Adds the live songs of a posting list to the results, skipping songs already found.
+     * @param posting the candidate songs
+     * @param mustContain case-folded text the title or artist must contain, or null to
+     *        accept every candidate
+     * @param found the songs already in results
+     * @param results the list being filled
+     * @param limit the maximum number of results
+     * @return true once results holds limit songs
+     */
+    private boolean collect(Posting posting, String mustContain, Set<SongRecord> found,
+                            List<SongRecord> results, int limit) {
+        for (int i = 0; i < posting.size && results.size() < limit; i++) {
+            SongRecord song = posting.songs[i];
+            if (mustContain != null && !containsIgnoreCase(song.getTitle(), mustContain)
+                    && !containsIgnoreCase(song.getArtist(), mustContain)) {
+                continue;
+            }
+            if (occurrences.get(song) > 0 && found.add(song)) {
+                results.add(song);
+            }
+        }
+        return results.size() >= limit;
+    }
+
+    /**
+     * Drops every stale song from the posting lists and from the occurrence counts.
+     */
+    private void compact() {
+        for (Iterator<Posting> it = fields.values().iterator(); it.hasNext(); ) {
+            if (compact(it.next())) {
+                it.remove();
+            }
+        }
+
+        long[] oldKeys = gramKeys;
+        Posting[] oldPostings = gramPostings;
+        gramKeys = new long[oldKeys.length];
+        gramPostings = new Posting[oldPostings.length];
+        gramCount = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldPostings[slot] != null && !compact(oldPostings[slot])) {
+                insert(oldKeys[slot], oldPostings[slot]);
+            }
+        }
+
+        occurrences.values().removeIf(count -> count == 0);
+        stale = 0;
+    }
+
+    /**
+     * Drops the stale songs from one posting list.
+     * @param posting the list to compact
+     * @return true if the list is now empty
+     */
+    private boolean compact(Posting posting) {
+        int kept = 0;
+        for (int i = 0; i < posting.size; i++) {
+            if (occurrences.get(posting.songs[i]) > 0) {
+                posting.songs[kept++] = posting.songs[i];
+            }
+        }
+        Arrays.fill(posting.songs, kept, posting.size, null);
+        posting.size = kept;
+        return kept == 0;
+    }
+
+    /**
+     * Gets the posting list of a gram, adding an empty one to the table if needed.
+     * @param gram a packed gram
+     * @return the posting list of gram
+     */
+    private Posting postingFor(long gram) {
+        int slot = slotOf(gram);
+        if (gramPostings[slot] == null) {
+            Posting posting = new Posting();
+            if ((gramCount + 1) * 2 > gramKeys.length) {
+                rehash();
+            }
+            insert(gram, posting);
+            return posting;
+        }
+        return gramPostings[slot];
+    }
+
+    /**
+     * Finds the slot holding a gram, or the empty slot where it would go.
+     * @param gram a packed gram
+     * @return the slot index
+     */
+    private int slotOf(long gram) {
+        int mask = gramKeys.length - 1;
+        int slot = hash(gram) & mask;
+        while (gramPostings[slot] != null && gramKeys[slot] != gram) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Puts a gram that is not in the table yet into its slot.
+     * @param gram a packed gram
+     * @param posting its posting list
+     */
+    private void insert(long gram, Posting posting) {
+        int slot = slotOf(gram);
+        gramKeys[slot] = gram;
+        gramPostings[slot] = posting;
+        gramCount++;
+    }
+
+    /**
+     * Doubles the gram table and re-inserts every gram.
+     */
+    private void rehash() {
+        long[] oldKeys = gramKeys;
+        Posting[] oldPostings = gramPostings;
+        gramKeys = new long[oldKeys.length * 2];
+        gramPostings = new Posting[oldPostings.length * 2];
+        gramCount = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldPostings[slot] != null) {
+                insert(oldKeys[slot], oldPostings[slot]);
+            }
+        }
+    }
+
+    /**
+     * Checks whether text contains a case-folded query, ignoring case, without allocating.
+     * @param text the field to search, null is treated as the empty String
+     * @param folded the case-folded query
+     * @return true if the query occurs in text
+     */
+    private static boolean containsIgnoreCase(String text, String folded) {
+        if (text == null) {
+            return folded.isEmpty();
+        }
+        for (int i = 0; i + folded.length() <= text.length(); i++) {
+            if (text.regionMatches(true, i, folded, 0, folded.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Collects the distinct unigrams, bigrams and trigrams of a song's case-folded title and
+     * artist. Grams never span the two fields.
+     * @param title the case-folded title
+     * @param artist the case-folded artist
+     * @return the packed grams, each once
+     */
+    private static long[] gramsOf(String title, String artist) {
+        long[] packed = new long[3 * (title.length() + artist.length())];
+        int count = 0;
+        for (String field : new String[] {title, artist}) {
+            for (int i = 0; i < field.length(); i++) {
+                packed[count++] = pack(field, i, 1);
+                if (i + 2 <= field.length()) {
+                    packed[count++] = pack(field, i, 2);
+                }
+                if (i + 3 <= field.length()) {
+                    packed[count++] = pack(field, i, 3);
+                }
+            }
+        }
+
+        Arrays.sort(packed, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || packed[i] != packed[i - 1]) {
+                packed[distinct++] = packed[i];
+            }
+        }
+        return Arrays.copyOf(packed, distinct);
+    }
+
+    /**
+     * Packs one, two or three characters starting at an index into a long, tagged with
+     * their number so that no gram packs to 0.
+     * @param text a case-folded String
+     * @param i index of the first character
+     * @param length 1, 2 or 3
+     * @return the gram key
+     */
+    private static long pack(String text, int i, int length) {
+        long gram = length;
+        for (int k = 0; k < length; k++) {
+            gram = (gram << 16) | text.charAt(i + k);
+        }
+        return gram;
+    }
+
+    /**
+     * Hashes a packed gram, spreading the bits so linear probing stays short.
+     * @param gram a packed gram
+     * @return the hash of gram
+     */
+    private static int hash(long gram) {
+        long h = gram * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
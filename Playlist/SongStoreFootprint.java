@@ -0,0 +1,79 @@
+/**
+ * SongStoreFootprint measures how much heap a large library takes when it is held in a
+ * Playlist of SongRecord objects compared to a columnar CompactSongStore.
+ *
+ * Each run generates the same synthetic library for both layouts: unique titles, artist
+ * names drawn from a smaller set, and lengths under an hour. Every SongRecord gets its own
+ * String objects, the same as songs read in one at a time from the console or a file.
+ * Heap usage is sampled after forcing garbage collection, so results are approximate.
+ *
+ * Usage: java SongStoreFootprint [songs] [artists]
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+public class SongStoreFootprint {
+
+    /**
+     * Builds both layouts and prints the heap used by each.
+     * @param args optional number of songs (default 1000000) and artists (default 20000)
+     * @throws FullPlaylistException never, Playlist has no practical size limit
+     */
+    public static void main(String[] args) throws FullPlaylistException {
+        int songs = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int artists = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+        long baseline = usedHeap();
+        Playlist playlist = new Playlist();
+        for (int i = 0; i < songs; i++) {
+            playlist.addSong(song(i, artists), i + 1);
+        }
+        long playlistBytes = usedHeap() - baseline;
+
+        baseline = usedHeap();
+        CompactSongStore store = new CompactSongStore();
+        for (int i = 0; i < songs; i++) {
+            store.addSong(song(i, artists), i + 1);
+        }
+        long storeBytes = usedHeap() - baseline;
+
+        System.out.println("Songs: " + songs + ", artists: " + artists);
+        System.out.printf("Playlist of SongRecords: %,d bytes (%.1f bytes/song)%n",
+                          playlistBytes, (double) playlistBytes / songs);
+        System.out.printf("CompactSongStore:        %,d bytes (%.1f bytes/song, %,d estimated)%n",
+                          storeBytes, (double) storeBytes / songs, store.footprintBytes());
+        System.out.printf("Ratio: %.2fx%n", (double) playlistBytes / storeBytes);
+
+        // Keep both layouts reachable until every sample has been taken
+        if (playlist.size() != store.size()) {
+            System.out.println("Layouts disagree on size");
+        }
+    }
+
+    /**
+     * Generates the i-th synthetic song with freshly allocated Strings.
+     * @param i index of the song
+     * @param artists number of distinct artist names to draw from
+     * @return a new SongRecord
+     */
+    private static SongRecord song(int i, int artists) {
+        SongRecord song = new SongRecord();
+        song.setTitle("Track " + i);
+        song.setArtist("Artist " + (i % artists));
+        song.setMinutes((i / 7) % 8);
+        song.setSeconds(i % 60);
+        return song;
+    }
+
+    /**
+     * Samples the heap in use after asking the JVM to collect garbage.
+     * @return the number of bytes currently used on the heap
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
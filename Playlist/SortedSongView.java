@@ -0,0 +1,295 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * SortedSongView keeps the songs of a Playlist in a SongOrder without reordering the
+ * Playlist, and presents them as a read-only List.
+ *
+ * The songs are held in a treap, a binary search tree that stays balanced by giving every
+ * node a random priority and keeping priorities in heap order. Each node also counts the
+ * nodes below it, so the i-th song in sorted order is found in O(log n) expected time.
+ * Nodes are keyed by the song's sort key and then by its order label in the Playlist, which
+ * makes every entry unique, lets equal keys fall in playlist order, and finds the exact entry
+ * to remove when the same song occurs more than once. The Playlist reports every insertion,
+ * removal and relabeling, each costing O(log n).
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+class SortedSongView extends AbstractList<SongRecord> {
+
+    /**
+     * One entry of the treap.
+     */
+    private static final class Node {
+
+        /** The song of this entry */
+        final SongRecord song;
+
+        /** Case-folded title or artist compared first, or null when sorting by length */
+        final String key;
+
+        /** Length of the song in seconds, compared first when sorting by length */
+        final int seconds;
+
+        /** Order label of the entry in the Playlist, compared when the keys are equal */
+        final long label;
+
+        /** Random heap priority, a parent's is never below its children's */
+        final long priority;
+
+        /** Number of nodes in the subtree rooted here */
+        int size = 1;
+
+        /** Subtree of smaller entries */
+        Node left;
+
+        /** Subtree of larger entries */
+        Node right;
+
+        /**
+         * Constructs a Node.
+         * @param song the song
+         * @param key the case-folded text key, or null
+         * @param seconds the song length in seconds
+         * @param label the order label
+         * @param priority the heap priority
+         */
+        Node(SongRecord song, String key, int seconds, long label, long priority) {
+            this.song = song;
+            this.key = key;
+            this.seconds = seconds;
+            this.label = label;
+            this.priority = priority;
+        }
+    }
+
+    /** The order this view is kept in */
+    private final SongOrder order;
+
+    /** Source of node priorities */
+    private final SplittableRandom random = new SplittableRandom();
+
+    /** Root of the treap, null when empty */
+    private Node root;
+
+    /**
+     * Constructs an empty view.
+     * @param order the order to keep the songs in
+     */
+    SortedSongView(SongOrder order) {
+        this.order = order;
+    }
+
+    /**
+     * Gets the song at an index of the sorted order, in O(log n) expected time.
+     * @param index 0-based index into the sorted order
+     * @return the song
+     * @throws IndexOutOfBoundsException if index is not within [0, size())
+     */
+    @Override
+    public SongRecord get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of range for size " + size());
+        }
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.song;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Determines the number of songs in the view.
+     * @return the number of songs in the Playlist
+     */
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Adds an entry for a song, unless the view already has it. A batch insert may relabel
+     * some of its own songs before the Playlist adds them, so an entry can be reported twice.
+     * @param song the song added to the Playlist
+     * @param label its order label
+     */
+    void add(SongRecord song, long label) {
+        Node node = node(song, label);
+        for (Node at = root; at != null; ) {
+            int c = compare(node, at);
+            if (c == 0) {
+                return;
+            }
+            at = c < 0 ? at.left : at.right;
+        }
+        Node[] parts = split(root, node);
+        root = merge(merge(parts[0], node), parts[1]);
+        modCount++;
+    }
+
+    /**
+     * Removes the entry for a song.
+     * @param song the song removed from the Playlist
+     * @param label the order label it had
+     */
+    void remove(SongRecord song, long label) {
+        root = remove(root, node(song, label));
+        modCount++;
+    }
+
+    /**
+     * Replaces every entry at once, sorting the songs and building the treap in O(n log n).
+     * @param songs the songs of the Playlist, in playlist order
+     * @param labels the order label of each song
+     */
+    void rebuild(SongRecord[] songs, long[] labels) {
+        Node[] nodes = new Node[songs.length];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = node(songs[i], labels[i]);
+        }
+        Arrays.sort(nodes, this::compare);
+
+        // Build the Cartesian tree of the sorted nodes along its right spine
+        Node[] spine = new Node[nodes.length];
+        int depth = 0;
+        for (Node node : nodes) {
+            Node last = null;
+            while (depth > 0 && spine[depth - 1].priority < node.priority) {
+                last = spine[--depth];
+            }
+            node.left = last;
+            if (depth > 0) {
+                spine[depth - 1].right = node;
+            }
+            spine[depth++] = node;
+        }
+        root = depth > 0 ? spine[0] : null;
+        updateSizes(root);
+        modCount++;
+    }
+
+    /**
+     * Creates the node for an entry.
+     * @param song the song
+     * @param label its order label
+     * @return a node with a fresh priority
+     */
+    private Node node(SongRecord song, long label) {
+        String key = order == SongOrder.TITLE ? Playlist.foldCase(song.getTitle())
+                   : order == SongOrder.ARTIST ? Playlist.foldCase(song.getArtist()) : null;
+        int seconds = song.getMinutes() * 60 + song.getSeconds();
+        return new Node(song, key, seconds, label, random.nextLong());
+    }
+
+    /**
+     * Compares two entries by sort key and then by order label.
+     * @param a the first entry
+     * @param b the second entry
+     * @return a negative number, zero or a positive number as a sorts before, with or after b
+     */
+    private int compare(Node a, Node b) {
+        int byKey = a.key != null ? a.key.compareTo(b.key) : Integer.compare(a.seconds, b.seconds);
+        return byKey != 0 ? byKey : Long.compare(a.label, b.label);
+    }
+
+    /**
+     * Splits a subtree into the entries before a node and the entries after it.
+     * @param subtree the subtree to split
+     * @param at the node to split at, which must not be in the subtree
+     * @return the subtree of earlier entries and the subtree of later entries
+     */
+    private Node[] split(Node subtree, Node at) {
+        if (subtree == null) {
+            return new Node[2];
+        }
+        Node[] parts;
+        if (compare(subtree, at) < 0) {
+            parts = split(subtree.right, at);
+            subtree.right = parts[0];
+            parts[0] = subtree;
+        } else {
+            parts = split(subtree.left, at);
+            subtree.left = parts[1];
+            parts[1] = subtree;
+        }
+        subtree.size = size(subtree.left) + size(subtree.right) + 1;
+        return parts;
+    }
+
+    /**
+     * Joins two subtrees whose entries are all in order.
+     * @param before the subtree of earlier entries
+     * @param after the subtree of later entries
+     * @return the root of the joined subtree
+     */
+    private Node merge(Node before, Node after) {
+        if (before == null) {
+            return after;
+        }
+        if (after == null) {
+            return before;
+        }
+        if (before.priority > after.priority) {
+            before.right = merge(before.right, after);
+            before.size = size(before.left) + size(before.right) + 1;
+            return before;
+        }
+        after.left = merge(before, after.left);
+        after.size = size(after.left) + size(after.right) + 1;
+        return after;
+    }
+
+    /**
+     * Removes the entry comparing equal to a probe node from a subtree.
+     * @param subtree the subtree to remove from
+     * @param probe a node with the song and label of the entry
+     * @return the root of the subtree afterwards
+     */
+    private Node remove(Node subtree, Node probe) {
+        if (subtree == null) {
+            return null;
+        }
+        int c = compare(probe, subtree);
+        if (c == 0) {
+            return merge(subtree.left, subtree.right);
+        }
+        if (c < 0) {
+            subtree.left = remove(subtree.left, probe);
+        } else {
+            subtree.right = remove(subtree.right, probe);
+        }
+        subtree.size = size(subtree.left) + size(subtree.right) + 1;
+        return subtree;
+    }
+
+    /**
+     * Recomputes the subtree sizes below and including a node.
+     * @param subtree the subtree to update
+     * @return the number of nodes in it
+     */
+    private static int updateSizes(Node subtree) {
+        if (subtree == null) {
+            return 0;
+        }
+        subtree.size = updateSizes(subtree.left) + updateSizes(subtree.right) + 1;
+        return subtree.size;
+    }
+
+    /**
+     * Gets the size of a possibly empty subtree.
+     * @param subtree the subtree
+     * @return its number of nodes, 0 if null
+     */
+    private static int size(Node subtree) {
+        return subtree == null ? 0 : subtree.size;
+    }
+}
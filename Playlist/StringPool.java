@@ -0,0 +1,155 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * StringPool dictionary-encodes Strings into small int ids.
+ * Each distinct String is stored once as UTF-8 bytes in a shared byte heap, and an
+ * open-addressing hash table maps the bytes back to their id, so a pool of n Strings
+ * costs a few ints per entry plus the bytes themselves instead of one String object each.
+ * Ids are handed out in order starting at 0 and are never reused.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+class StringPool {
+
+    /** UTF-8 bytes of every pooled String, back to back */
+    private byte[] heap;
+
+    /** Number of bytes of heap in use */
+    private int heapSize;
+
+    /** offsets[id] is where the String with that id starts, offsets[count] is heapSize */
+    private int[] offsets;
+
+    /** Number of distinct Strings in the pool */
+    private int count;
+
+    /** Open-addressing table of id + 1 per slot, 0 marks an empty slot */
+    private int[] table;
+
+    /**
+     * Constructs an empty StringPool.
+     */
+    StringPool() {
+        heap = new byte[1024];
+        offsets = new int[65];
+        table = new int[128];
+    }
+
+    /**
+     * Determines the number of distinct Strings in the pool.
+     * @return the number of ids handed out so far
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Gets the id of a String, adding the String to the pool if it is not there yet.
+     * @param text the String to encode, null is stored as the empty String
+     * @return the id of text
+     */
+    int intern(String text) {
+        byte[] encoded = (text == null ? "" : text).getBytes(StandardCharsets.UTF_8);
+        int hash = hash(encoded, 0, encoded.length);
+        int mask = table.length - 1;
+
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (id < 0) {
+                id = append(encoded);
+                table[slot] = id + 1;
+                if (count * 2 > table.length) {
+                    rehash();
+                }
+                return id;
+            }
+            if (matches(id, encoded)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Decodes the String with the given id.
+     * @param id an id returned by intern
+     * @return the pooled String
+     * @throws IllegalArgumentException if id was never handed out by this pool
+     */
+    String get(int id) {
+        if (id < 0 || id >= count) {
+            throw new IllegalArgumentException("No string with id " + id);
+        }
+        return new String(heap, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Estimates the heap footprint of the pool's arrays.
+     * @return the approximate number of bytes retained by this pool
+     */
+    long footprintBytes() {
+        return heap.length + 4L * offsets.length + 4L * table.length;
+    }
+
+    /**
+     * Copies encoded bytes onto the end of the heap under the next free id.
+     * @param encoded the UTF-8 bytes of a String not yet in the pool
+     * @return the id given to the String
+     */
+    private int append(byte[] encoded) {
+        if (heapSize + encoded.length > heap.length) {
+            heap = Arrays.copyOf(heap, Math.max(heap.length * 2, heapSize + encoded.length));
+        }
+        if (count + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        System.arraycopy(encoded, 0, heap, heapSize, encoded.length);
+        heapSize += encoded.length;
+        count++;
+        offsets[count] = heapSize;
+        return count - 1;
+    }
+
+    /**
+     * Checks whether the String with the given id has exactly the given bytes.
+     * @param id an id in the pool
+     * @param encoded the bytes to compare against
+     * @return true if the bytes are equal
+     */
+    private boolean matches(int id, byte[] encoded) {
+        int start = offsets[id];
+        return offsets[id + 1] - start == encoded.length
+            && Arrays.equals(heap, start, start + encoded.length, encoded, 0, encoded.length);
+    }
+
+    /**
+     * Doubles the hash table and re-inserts every id.
+     */
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int id = 0; id < count; id++) {
+            int slot = hash(heap, offsets[id], offsets[id + 1]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+    }
+
+    /**
+     * Hashes a range of bytes, spreading the bits so linear probing stays short.
+     * @param bytes the array holding the range
+     * @param from first index of the range
+     * @param to index after the last byte of the range
+     * @return the hash of the range
+     */
+    private static int hash(byte[] bytes, int from, int to) {
+        int h = 1;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + bytes[i];
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,210 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Differential tests of ChunkedSongList against an ArrayList model. Random edits are
+ * applied to both and every derived value of the list (songs, labels, prefix times, the
+ * content hash and cached fingerprints) is checked against the model after each step.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+class ChunkedSongListTest {
+
+    /** Number of random edits per run */
+    private static final int STEPS = 800;
+
+    /** Size above which only removals are made, keeping each check cheap */
+    private static final int MAX_SIZE = 4 * ChunkedSongList.CHUNK_CAPACITY;
+
+    /**
+     * Builds a song with a title, artist and length drawn from small pools, so equal and
+     * case-variant songs are common.
+     * @param random the source of randomness
+     * @return a new SongRecord
+     */
+    static SongRecord randomSong(Random random) {
+        String[] titles = {"Intro", "intro", "Blue", "BLUE", "Outro", "Song " + random.nextInt(50)};
+        SongRecord song = new SongRecord();
+        song.setTitle(titles[random.nextInt(titles.length)]);
+        song.setArtist("Artist " + random.nextInt(8));
+        song.setMinutes(random.nextInt(6));
+        song.setSeconds(random.nextInt(4) == 0 ? 0 : random.nextInt(60));
+        return song;
+    }
+
+    @Test
+    void randomEditsMatchModel() {
+        for (long seed = 1; seed <= 3; seed++) {
+            Random random = new Random(seed);
+            ChunkedSongList list = new ChunkedSongList();
+            List<SongRecord> model = new ArrayList<>();
+
+            ChunkedSongList snapshot = null;
+            List<SongRecord> snapshotModel = null;
+
+            for (int step = 0; step < STEPS; step++) {
+                int size = model.size();
+                int choice = size > MAX_SIZE ? 8 : random.nextInt(10);
+                if (choice < 4 || size == 0) {
+                    int index = random.nextInt(size + 1);
+                    SongRecord song = randomSong(random);
+                    list.add(index, song);
+                    model.add(index, song);
+                } else if (choice < 6) {
+                    int index = random.nextInt(size);
+                    assertSame(model.remove(index), list.remove(index));
+                } else if (choice < 8) {
+                    int index = random.nextInt(size + 1);
+                    int count = random.nextInt(3 * ChunkedSongList.CHUNK_CAPACITY);
+                    SongRecord[] batch = new SongRecord[count + 2];
+                    for (int i = 0; i < count; i++) {
+                        batch[i] = randomSong(random);
+                        model.add(index + i, batch[i]);
+                    }
+                    list.addAll(index, batch, count);
+                } else if (choice < 9) {
+                    int from = random.nextInt(size);
+                    int to = from + 1 + random.nextInt(Math.min(size - from, 2 * ChunkedSongList.CHUNK_CAPACITY));
+                    list.removeRange(from, to);
+                    model.subList(from, to).clear();
+                } else {
+                    if (snapshot != null) {
+                        assertMatches(snapshotModel, snapshot, random);
+                    }
+                    snapshot = list.snapshot();
+                    snapshotModel = new ArrayList<>(model);
+                }
+                assertMatches(model, list, random);
+            }
+            if (snapshot != null) {
+                assertMatches(snapshotModel, snapshot, random);
+            }
+        }
+    }
+
+    @Test
+    void editsOfSnapshotLeaveOriginalUnchanged() {
+        Random random = new Random(42);
+        ChunkedSongList list = new ChunkedSongList();
+        List<SongRecord> model = new ArrayList<>();
+        for (int i = 0; i < 3 * ChunkedSongList.CHUNK_CAPACITY; i++) {
+            SongRecord song = randomSong(random);
+            list.add(i, song);
+            model.add(song);
+        }
+
+        ChunkedSongList copy = list.snapshot();
+        List<SongRecord> copyModel = new ArrayList<>(model);
+        for (int i = 0; i < 200; i++) {
+            int index = random.nextInt(copyModel.size());
+            copy.remove(index);
+            copyModel.remove(index);
+            SongRecord song = randomSong(random);
+            copy.add(index, song);
+            copyModel.add(index, song);
+        }
+        assertMatches(copyModel, copy, random);
+        assertMatches(model, list, random);
+    }
+
+    @Test
+    void equalContentHasEqualHash() {
+        Random random = new Random(7);
+        ChunkedSongList oneByOne = new ChunkedSongList();
+        SongRecord[] songs = new SongRecord[2000];
+        for (int i = 0; i < songs.length; i++) {
+            songs[i] = randomSong(random);
+            oneByOne.add(i, songs[i]);
+        }
+        ChunkedSongList batch = new ChunkedSongList();
+        batch.addAll(0, songs, songs.length);
+        assertEquals(oneByOne.contentHash(), batch.contentHash());
+
+        assertEquals(oneByOne.exactContentHash(), batch.exactContentHash());
+
+        oneByOne.remove(0);
+        assertTrue(oneByOne.contentHash() != batch.contentHash());
+        assertTrue(oneByOne.exactContentHash() != batch.exactContentHash());
+    }
+
+    @Test
+    void exactHashTellsCaseApart() {
+        SongRecord lower = new SongRecord();
+        lower.setTitle("blue");
+        lower.setArtist("band");
+        SongRecord upper = new SongRecord();
+        upper.setTitle("Blue");
+        upper.setArtist("band");
+        ChunkedSongList first = new ChunkedSongList();
+        first.add(0, lower);
+        ChunkedSongList second = new ChunkedSongList();
+        second.add(0, upper);
+        assertEquals(first.contentHash(), second.contentHash());
+        assertTrue(first.exactContentHash() != second.exactContentHash());
+    }
+
+    /**
+     * Checks every observable value of list against the model.
+     * @param model the songs the list should hold, in order
+     * @param list the list under test
+     * @param random picks the elapsed times checked with indexAt
+     */
+    private static void assertMatches(List<SongRecord> model, ChunkedSongList list, Random random) {
+        int n = model.size();
+        assertEquals(n, list.size());
+
+        SongRecord[] songs = new SongRecord[n];
+        long[] labels = new long[n];
+        long[] fingerprints = new long[n];
+        list.copyRange(0, n, songs, labels);
+        list.copyFingerprints(0, n, fingerprints);
+
+        long elapsed = 0;
+        long[] ends = new long[n];
+        for (int i = 0; i < n; i++) {
+            SongRecord song = model.get(i);
+            assertSame(song, list.get(i));
+            assertSame(song, songs[i]);
+            assertEquals(labels[i], list.labelAt(i));
+            if (i > 0) {
+                assertTrue(labels[i - 1] < labels[i], "labels must increase");
+            }
+            assertEquals(SongFingerprint.of(song), fingerprints[i]);
+            assertEquals(elapsed, list.offsetOf(i));
+            elapsed += song.getMinutes() * 60 + song.getSeconds();
+            ends[i] = elapsed;
+        }
+        assertEquals(elapsed, list.totalSeconds());
+
+        for (int k = 0; k < 20 && elapsed > 0; k++) {
+            long at = (long) (random.nextDouble() * elapsed);
+            int expected = 0;
+            while (ends[expected] <= at) {
+                expected++;
+            }
+            assertEquals(expected, list.indexAt(at));
+        }
+
+        ChunkedSongList fresh = new ChunkedSongList();
+        fresh.addAll(0, model.toArray(new SongRecord[0]), n);
+        assertEquals(fresh.contentHash(), list.contentHash());
+        assertEquals(fresh.exactContentHash(), list.exactContentHash());
+
+        if (n > 2) {
+            int from = random.nextInt(n);
+            int to = from + random.nextInt(n - from + 1);
+            SongRecord[] range = new SongRecord[to - from];
+            list.copyRange(from, to, range, null);
+            assertArrayEquals(model.subList(from, to).toArray(), range);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/**
+ * Stress test of ConcurrentPlaylist. One editor keeps the playlist a sliding window of
+ * numbered songs, appending song k + 1 at the end and removing the first song, while
+ * several readers check that every snapshot they take still holds consecutive numbers
+ * with the expected total length. Any torn or half-published state shows up as a violation.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+class ConcurrentPlaylistTest {
+
+    /** Length of every generated song in seconds */
+    private static final int SONG_SECONDS = 180;
+
+    /** Number of songs in the window */
+    private static final int SONGS = 10_000;
+
+    /** How long the editor and readers run */
+    private static final long MILLIS = 500;
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void snapshotsOfSlidingWindowStayConsistent() throws FullPlaylistException, InterruptedException {
+        ConcurrentPlaylist playlist = new ConcurrentPlaylist();
+        for (int i = 0; i < SONGS; i++) {
+            playlist.addSong(song(i), i + 1);
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong violations = new AtomicLong();
+        AtomicLong checks = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+
+        threads.add(new Thread(() -> {
+            int next = SONGS;
+            try {
+                while (running.get()) {
+                    playlist.addSong(song(next++), playlist.size() + 1);
+                    playlist.removeSong(1);
+                }
+            } catch (FullPlaylistException | RuntimeException e) {
+                violations.incrementAndGet();
+            }
+        }));
+
+        int readers = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    while (running.get()) {
+                        Playlist snapshot = playlist.snapshot();
+                        int size = snapshot.size();
+                        int first = Integer.parseInt(snapshot.getSong(1).getTitle());
+                        int position = 1 + random.nextInt(size);
+                        int title = Integer.parseInt(snapshot.getSong(position).getTitle());
+                        // Between the editor's add and remove the window is one song longer
+                        if ((size != SONGS && size != SONGS + 1)
+                                || title != first + position - 1
+                                || snapshot.totalDuration() != (long) size * SONG_SECONDS) {
+                            violations.incrementAndGet();
+                        }
+                        checks.incrementAndGet();
+                    }
+                } catch (RuntimeException e) {
+                    violations.incrementAndGet();
+                }
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        Thread.sleep(MILLIS);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, violations.get());
+        assertEquals(SONGS, playlist.size());
+        // Readers must actually have raced the editor
+        assertTrue(checks.get() > 0);
+    }
+
+    /**
+     * Generates a song whose title is its sequence number.
+     * @param number the sequence number of the song
+     * @return a new SongRecord three minutes long
+     */
+    private static SongRecord song(int number) {
+        SongRecord song = new SongRecord();
+        song.setTitle(Integer.toString(number));
+        song.setArtist("Artist " + (number % 100));
+        song.setMinutes(SONG_SECONDS / 60);
+        song.setSeconds(SONG_SECONDS % 60);
+        return song;
+    }
+}
@@ -0,0 +1,67 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that PlaylistBatch reports a failing command and carries on with the script.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+class PlaylistBatchTest {
+
+    @Test
+    void invalidCommandsAreReported() throws IOException {
+        StringWriter out = new StringWriter();
+        int failures = PlaylistBatch.run(new StringReader(
+                "A One Band 3 0\nR 5\nX\nA Two Band 61 0\nS\n"), out);
+        assertEquals(3, failures);
+        assertEquals("line 2: No song at position 5 to remove\n"
+                     + "line 3: Unknown command X\n"
+                     + "line 4: Invalid song length\n"
+                     + "1\n", out.toString());
+    }
+
+    @Test
+    void uncheckedFailureDoesNotStopScript() throws IOException {
+        // Fails the way a Writer over a channel does, with an unchecked exception
+        StringWriter out = new StringWriter() {
+            @Override
+            public void write(String text) {
+                if (text.contains("Broken")) {
+                    throw new UncheckedIOException(new IOException("output refused"));
+                }
+                super.write(text);
+            }
+        };
+        int failures = PlaylistBatch.run(new StringReader(
+                "A Broken Band 3 0\nA Fine Band 2 0\nG 1\nG 2\nS\n"), out);
+        assertEquals(1, failures);
+        // The position was written before the song failed
+        assertEquals("1: line 3: java.io.IOException: output refused\n"
+                     + "2: " + song("Fine", "Band", 2, 0) + "\n"
+                     + "2\n", out.toString());
+    }
+
+    /**
+     * Builds a SongRecord.
+     * @param title the title
+     * @param artist the artist
+     * @param minutes the minutes of the length
+     * @param seconds the seconds of the length
+     * @return the new SongRecord
+     */
+    private static SongRecord song(String title, String artist, int minutes, int seconds) {
+        SongRecord song = new SongRecord();
+        song.setTitle(title);
+        song.setArtist(artist);
+        song.setMinutes(minutes);
+        song.setSeconds(seconds);
+        return song;
+    }
+}
@@ -0,0 +1,234 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of PlaylistDiff and PlaylistPatch. Targets are made from random sources by random
+ * removals, insertions, moves and case changes, and the patch between them must turn a
+ * copy of the source into the target and refuse any other Playlist.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+class PlaylistDiffTest {
+
+    @Test
+    void patchTurnsSourceIntoTarget() throws FullPlaylistException {
+        for (long seed = 1; seed <= 200; seed++) {
+            Random random = new Random(seed);
+            List<SongRecord> source = randomSongs(random, random.nextInt(300));
+            List<SongRecord> target = edit(random, source, random.nextInt(12));
+
+            Playlist from = playlist(source);
+            Playlist to = playlist(target);
+            PlaylistPatch patch = PlaylistDiff.diff(from, to);
+
+            from.apply(patch);
+            assertSongs(target, from);
+            assertEquals(to, from);
+        }
+    }
+
+    @Test
+    void unrelatedPlaylistsAreReplaced() throws FullPlaylistException {
+        Random random = new Random(99);
+        List<SongRecord> source = randomSongs(random, 5000);
+        List<SongRecord> target = randomSongs(random, 4000);
+
+        Playlist from = playlist(source);
+        from.apply(PlaylistDiff.diff(from, playlist(target)));
+        assertSongs(target, from);
+    }
+
+    @Test
+    void equalPlaylistsNeedNoOperations() throws FullPlaylistException {
+        List<SongRecord> songs = randomSongs(new Random(5), 100);
+        assertEquals(0, PlaylistDiff.diff(playlist(songs), playlist(songs)).size());
+    }
+
+    @Test
+    void moveCarriesNoSongs() throws FullPlaylistException {
+        List<SongRecord> source = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            source.add(song("Song " + i, "Artist", 3, i));
+        }
+        List<SongRecord> target = new ArrayList<>(source);
+        List<SongRecord> moved = new ArrayList<>(target.subList(10, 20));
+        target.subList(10, 20).clear();
+        target.addAll(30, moved);
+
+        PlaylistPatch patch = PlaylistDiff.diff(playlist(source), playlist(target));
+        assertEquals(0, patch.getInsertedSongCount());
+        Playlist from = playlist(source);
+        from.apply(patch);
+        assertSongs(target, from);
+    }
+
+    @Test
+    void patchRejectsPlaylistDifferingOnlyInCase() throws FullPlaylistException {
+        List<SongRecord> source = new ArrayList<>();
+        source.add(song("Intro", "Band", 1, 0));
+        source.add(song("Blue", "Band", 3, 30));
+        List<SongRecord> target = new ArrayList<>(source.subList(1, 2));
+
+        List<SongRecord> other = new ArrayList<>();
+        other.add(song("INTRO", "Band", 1, 0));
+        other.add(song("Blue", "Band", 3, 30));
+
+        PlaylistPatch patch = PlaylistDiff.diff(playlist(source), playlist(target));
+        Playlist wrong = playlist(other);
+        assertThrows(IllegalArgumentException.class, () -> wrong.apply(patch));
+        assertSongs(other, wrong);
+    }
+
+    @Test
+    void patchSurvivesWireForm() throws FullPlaylistException, IOException {
+        for (long seed = 1; seed <= 50; seed++) {
+            Random random = new Random(seed);
+            List<SongRecord> source = randomSongs(random, random.nextInt(300));
+            List<SongRecord> target = edit(random, source, random.nextInt(12));
+            // Text longer than writeUTF allows, and outside the BMP
+            target.add(0, song("x".repeat(70000), "\uD83C\uDFB5 Band", 4, 5));
+
+            PlaylistPatch patch = PlaylistDiff.diff(playlist(source), playlist(target));
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            patch.writeTo(new DataOutputStream(bytes));
+            PlaylistPatch read = PlaylistPatch.readFrom(
+                    new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+            assertEquals(patch.toString(), read.toString());
+            assertEquals(patch.getInsertedSongCount(), read.getInsertedSongCount());
+            Playlist from = playlist(source);
+            from.apply(read);
+            assertSongs(target, from);
+        }
+    }
+
+    @Test
+    void readRejectsOtherData() {
+        byte[] bytes = {0, 1, 2, 3, 4, 5, 6, 7};
+        assertThrows(IOException.class, () -> PlaylistPatch.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes))));
+    }
+
+    @Test
+    void readPatchStillChecksSource() throws FullPlaylistException, IOException {
+        List<SongRecord> songs = randomSongs(new Random(8), 30);
+        PlaylistPatch patch = PlaylistDiff.diff(playlist(songs), playlist(songs.subList(0, 10)));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        patch.writeTo(new DataOutputStream(bytes));
+        PlaylistPatch read = PlaylistPatch.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        Playlist other = playlist(randomSongs(new Random(9), 30));
+        assertThrows(IllegalArgumentException.class, () -> other.apply(read));
+    }
+
+    @Test
+    void patchRejectsDifferentSize() throws FullPlaylistException {
+        List<SongRecord> songs = randomSongs(new Random(3), 20);
+        PlaylistPatch patch = PlaylistDiff.diff(playlist(songs), playlist(songs.subList(0, 10)));
+        Playlist shorter = playlist(songs.subList(0, 19));
+        assertThrows(IllegalArgumentException.class, () -> shorter.apply(patch));
+    }
+
+    /**
+     * Applies random edits to a copy of a list of songs.
+     * @param random the source of randomness
+     * @param songs the songs to start from, left unchanged
+     * @param edits the number of edits to make
+     * @return the edited copy
+     */
+    private static List<SongRecord> edit(Random random, List<SongRecord> songs, int edits) {
+        List<SongRecord> result = new ArrayList<>(songs);
+        for (int e = 0; e < edits; e++) {
+            int size = result.size();
+            int choice = random.nextInt(4);
+            if (choice == 0 || size == 0) {
+                result.addAll(random.nextInt(size + 1), randomSongs(random, 1 + random.nextInt(5)));
+            } else if (choice == 1) {
+                int from = random.nextInt(size);
+                result.subList(from, Math.min(size, from + 1 + random.nextInt(5))).clear();
+            } else if (choice == 2) {
+                int from = random.nextInt(size);
+                List<SongRecord> run = result.subList(from, Math.min(size, from + 1 + random.nextInt(8)));
+                List<SongRecord> moved = new ArrayList<>(run);
+                run.clear();
+                result.addAll(random.nextInt(result.size() + 1), moved);
+            } else {
+                int at = random.nextInt(size);
+                SongRecord old = result.get(at);
+                result.set(at, song(old.getTitle().toUpperCase(), old.getArtist(),
+                                    old.getMinutes(), old.getSeconds()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Makes random songs from small pools, so repeated songs are common.
+     * @param random the source of randomness
+     * @param count the number of songs
+     * @return the new songs
+     */
+    private static List<SongRecord> randomSongs(Random random, int count) {
+        List<SongRecord> songs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            songs.add(song("Song " + random.nextInt(40), "Artist " + random.nextInt(5),
+                           random.nextInt(6), random.nextInt(60)));
+        }
+        return songs;
+    }
+
+    /**
+     * Builds a SongRecord.
+     * @param title the title
+     * @param artist the artist
+     * @param minutes the minutes of the length
+     * @param seconds the seconds of the length
+     * @return the new SongRecord
+     */
+    private static SongRecord song(String title, String artist, int minutes, int seconds) {
+        SongRecord song = new SongRecord();
+        song.setTitle(title);
+        song.setArtist(artist);
+        song.setMinutes(minutes);
+        song.setSeconds(seconds);
+        return song;
+    }
+
+    /**
+     * Builds a Playlist holding songs in order.
+     * @param songs the songs
+     * @return the new Playlist
+     * @throws FullPlaylistException never, the lists are small
+     */
+    private static Playlist playlist(List<SongRecord> songs) throws FullPlaylistException {
+        Playlist playlist = new Playlist();
+        playlist.addAll(songs, 1);
+        return playlist;
+    }
+
+    /**
+     * Checks that a Playlist holds songs equal to the expected ones, in order.
+     * @param expected the expected songs
+     * @param playlist the Playlist to check
+     */
+    private static void assertSongs(List<SongRecord> expected, Playlist playlist) {
+        assertEquals(expected.size(), playlist.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertTrue(Playlist.songsEqual(expected.get(i), playlist.getSong(i + 1)),
+                       "song " + (i + 1) + " differs");
+        }
+    }
+}
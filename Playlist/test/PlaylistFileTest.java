@@ -0,0 +1,211 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of PlaylistFile: appends across record table growth and reopening, atomic saves,
+ * and the rejection of files whose header or records are corrupt.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+class PlaylistFileTest {
+
+    /** Directory the files of each test are written to */
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendsSurviveGrowthAndReopening() throws IOException {
+        Random random = new Random(13);
+        Path path = directory.resolve("songs.plst");
+        List<SongRecord> model = new ArrayList<>();
+        try (PlaylistFile file = PlaylistFile.create(path)) {
+            for (int round = 0; round < 30; round++) {
+                List<SongRecord> batch = randomSongs(random, random.nextInt(300));
+                file.append(batch);
+                model.addAll(batch);
+                assertSongs(model, file);
+            }
+        }
+        // A reopened file grows its table again from wherever the heap was left
+        try (PlaylistFile file = PlaylistFile.open(path)) {
+            assertSongs(model, file);
+            List<SongRecord> batch = randomSongs(random, 5000);
+            file.append(batch);
+            model.addAll(batch);
+        }
+        try (PlaylistFile file = PlaylistFile.openReadOnly(path)) {
+            assertSongs(model, file);
+            assertThrows(IOException.class, () -> file.append(randomSongs(random, 1)));
+        }
+    }
+
+    @Test
+    void batchesAndStringsLargerThanABlockAreWritten() throws IOException {
+        Random random = new Random(21);
+        Path path = directory.resolve("large.plst");
+        List<SongRecord> model = randomSongs(random, 20000);
+        for (int i = 0; i < 3; i++) {
+            // Longer than the 64 KB block strings are buffered in
+            model.get(random.nextInt(model.size())).setTitle("y".repeat(100000 + i));
+        }
+        try (PlaylistFile file = PlaylistFile.create(path)) {
+            file.append(model);
+        }
+        try (PlaylistFile file = PlaylistFile.openReadOnly(path)) {
+            assertSongs(model, file);
+        }
+    }
+
+    @Test
+    void saveReplacesFileAndLeavesNoTemporaryFile() throws IOException, FullPlaylistException {
+        Path path = directory.resolve("saved.plst");
+        List<SongRecord> first = randomSongs(new Random(1), 3000);
+        List<SongRecord> second = randomSongs(new Random(2), 10);
+        PlaylistFile.save(playlist(first), path);
+        PlaylistFile.save(playlist(second), path);
+
+        try (PlaylistFile file = PlaylistFile.openReadOnly(path)) {
+            assertSongs(second, file);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(path), files.toList());
+        }
+    }
+
+    @Test
+    void version1FilesAreRead() throws IOException {
+        Path path = directory.resolve("old.plst");
+        List<SongRecord> songs = randomSongs(new Random(4), 100);
+        try (PlaylistFile file = PlaylistFile.create(path)) {
+            file.append(songs);
+        }
+        // Before growing, the heap starts right after the table, as version 1 requires
+        patch(path, 4, ByteBuffer.allocate(4).putInt(0, 1));
+        patch(path, 24, ByteBuffer.allocate(8));
+        try (PlaylistFile file = PlaylistFile.openReadOnly(path)) {
+            assertSongs(songs, file);
+        }
+    }
+
+    @Test
+    void corruptHeaderIsRejected() throws IOException {
+        Path path = written("header.plst");
+        patch(path, 16, ByteBuffer.allocate(8).putLong(0, Long.MAX_VALUE));
+        assertThrows(IOException.class, () -> PlaylistFile.openReadOnly(path));
+
+        patch(path, 16, ByteBuffer.allocate(8).putLong(0, -1));
+        assertThrows(IOException.class, () -> PlaylistFile.openReadOnly(path));
+
+        patch(path, 16, ByteBuffer.allocate(8));
+        patch(path, 24, ByteBuffer.allocate(8).putLong(0, 40));
+        assertThrows(IOException.class, () -> PlaylistFile.openReadOnly(path));
+    }
+
+    @Test
+    void corruptRecordsAreReportedAsIOException() throws IOException {
+        Path path = written("records.plst");
+        // First record: title offset outside the heap
+        patch(path, 32, ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE - 2));
+        // Second record: negative artist length
+        patch(path, 52 + 12, ByteBuffer.allocate(4).putInt(0, -5));
+        // Third record: a length of more than 59:59
+        patch(path, 72 + 16, ByteBuffer.allocate(4).putInt(0, 3600));
+
+        try (PlaylistFile file = PlaylistFile.openReadOnly(path)) {
+            assertThrows(IOException.class, () -> file.getSong(1));
+            assertThrows(IOException.class, () -> file.getSong(2));
+            assertThrows(IOException.class, () -> file.getSong(3));
+            assertEquals(3, file.size());
+            assertThrows(IOException.class, file::toPlaylist);
+        }
+    }
+
+    /**
+     * Writes a file holding three songs.
+     * @param name the file name within the temporary directory
+     * @return the path of the file
+     * @throws IOException if the file cannot be written
+     */
+    private Path written(String name) throws IOException {
+        Path path = directory.resolve(name);
+        try (PlaylistFile file = PlaylistFile.create(path)) {
+            file.append(randomSongs(new Random(6), 3));
+        }
+        return path;
+    }
+
+    /**
+     * Overwrites bytes of a file.
+     * @param path the file to change
+     * @param position the file offset to write at
+     * @param bytes the bytes to write
+     * @throws IOException if the file cannot be written
+     */
+    private static void patch(Path path, long position, ByteBuffer bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            while (bytes.hasRemaining()) {
+                position += channel.write(bytes, position);
+            }
+        }
+    }
+
+    /**
+     * Makes random songs, some with text outside ASCII.
+     * @param random the source of randomness
+     * @param count the number of songs
+     * @return the new songs
+     */
+    private static List<SongRecord> randomSongs(Random random, int count) {
+        List<SongRecord> songs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            SongRecord song = new SongRecord();
+            song.setTitle((random.nextBoolean() ? "Song " : "Chanson \u00E9t\u00E9 ") + random.nextInt(100000));
+            song.setArtist("Artist " + random.nextInt(50));
+            song.setMinutes(random.nextInt(60));
+            song.setSeconds(random.nextInt(60));
+            songs.add(song);
+        }
+        return songs;
+    }
+
+    /**
+     * Builds a Playlist holding songs in order.
+     * @param songs the songs
+     * @return the new Playlist
+     * @throws FullPlaylistException never, the lists are small
+     */
+    private static Playlist playlist(List<SongRecord> songs) throws FullPlaylistException {
+        Playlist playlist = new Playlist();
+        playlist.addAll(songs, 1);
+        return playlist;
+    }
+
+    /**
+     * Checks that a file holds songs equal to the expected ones, in order.
+     * @param expected the expected songs
+     * @param file the file to check
+     * @throws IOException if a record is corrupt
+     */
+    private static void assertSongs(List<SongRecord> expected, PlaylistFile file) throws IOException {
+        assertEquals(expected.size(), file.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertTrue(Playlist.songsEqual(expected.get(i), file.getSong(i + 1)), "song " + (i + 1) + " differs");
+        }
+    }
+}
@@ -0,0 +1,102 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a PlaylistJournal log rebuilds the Playlist and its undo history, including
+ * songs whose fields are too long for DataOutput.writeUTF.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+class PlaylistJournalTest {
+
+    /** Directory the logs of each test are written to */
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoverReplaysEditsAndHistory() throws IOException, FullPlaylistException {
+        Random random = new Random(3);
+        Path logFile = directory.resolve("edits.log");
+        Playlist playlist = new Playlist();
+        playlist.addAll(randomSongs(random, 50), 1);
+
+        PlaylistJournal journal = new PlaylistJournal(playlist, logFile);
+        try {
+            playlist.addAll(randomSongs(random, 20), 10);
+            // Well over the 65535 bytes writeUTF can encode
+            playlist.addSong(song("\u00E9".repeat(40000), "Band", 3, 30), 1);
+            playlist.removeRange(5, 12);
+            playlist.moveRange(20, 30, 2);
+            playlist.removeSong(3);
+            assertTrue(journal.undo());
+            assertTrue(journal.undo());
+            assertTrue(journal.redo());
+        } finally {
+            journal.close();
+        }
+
+        PlaylistJournal recovered = PlaylistJournal.recover(logFile);
+        assertSongs(playlist, recovered.getPlaylist());
+        // Undo the move, the removal and the long song, back to the first bulk add
+        for (int i = 0; i < 3; i++) {
+            assertTrue(journal.undo());
+            assertTrue(recovered.undo());
+            assertSongs(playlist, recovered.getPlaylist());
+        }
+        recovered.close();
+    }
+
+    /**
+     * Makes random songs.
+     * @param random the source of randomness
+     * @param count the number of songs
+     * @return the new songs
+     */
+    private static List<SongRecord> randomSongs(Random random, int count) {
+        List<SongRecord> songs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            songs.add(song("Song " + random.nextInt(1000), "Artist " + random.nextInt(20),
+                           random.nextInt(60), random.nextInt(60)));
+        }
+        return songs;
+    }
+
+    /**
+     * Builds a SongRecord.
+     * @param title the title
+     * @param artist the artist
+     * @param minutes the minutes of the length
+     * @param seconds the seconds of the length
+     * @return the new SongRecord
+     */
+    private static SongRecord song(String title, String artist, int minutes, int seconds) {
+        SongRecord song = new SongRecord();
+        song.setTitle(title);
+        song.setArtist(artist);
+        song.setMinutes(minutes);
+        song.setSeconds(seconds);
+        return song;
+    }
+
+    /**
+     * Checks that two Playlists hold equal songs in the same order.
+     * @param expected the Playlist holding the expected songs
+     * @param actual the Playlist to check
+     */
+    private static void assertSongs(Playlist expected, Playlist actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 1; i <= expected.size(); i++) {
+            assertTrue(Playlist.songsEqual(expected.getSong(i), actual.getSong(i)), "song " + i + " differs");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the artist views of a Playlist against a filtered ArrayList model.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+class PlaylistTest {
+
+    @Test
+    void artistViewsFollowRandomEdits() throws FullPlaylistException {
+        Random random = new Random(31);
+        Playlist playlist = new Playlist();
+        List<SongRecord> model = new ArrayList<>();
+        // Taken before any song exists, and kept while artists come and go
+        List<Collection<SongRecord>> views = new ArrayList<>();
+        for (int a = 0; a < 4; a++) {
+            views.add(playlist.songsByArtist(a % 2 == 0 ? "artist " + a : "ARTIST " + a));
+        }
+
+        for (int step = 0; step < 3000; step++) {
+            int size = model.size();
+            int choice = random.nextInt(4);
+            if (choice < 2 || size == 0) {
+                int position = 1 + random.nextInt(size + 1);
+                SongRecord song = song(random);
+                playlist.addSong(song, position);
+                model.add(position - 1, song);
+            } else if (choice == 2) {
+                int position = 1 + random.nextInt(size);
+                playlist.removeSong(position);
+                model.remove(position - 1);
+            } else {
+                int from = 1 + random.nextInt(size);
+                int to = from + random.nextInt(Math.min(size - from + 1, 8));
+                playlist.removeRange(from, to);
+                model.subList(from - 1, to).clear();
+            }
+            // Querying artists that are absent must not disturb the views
+            playlist.songsByArtist("nobody " + random.nextInt(1000));
+
+            for (int a = 0; a < views.size(); a++) {
+                List<SongRecord> expected = new ArrayList<>();
+                for (SongRecord song : model) {
+                    if (song.getArtist().equalsIgnoreCase("artist " + a)) {
+                        expected.add(song);
+                    }
+                }
+                assertEquals(expected.size(), views.get(a).size());
+                assertEquals(expected, new ArrayList<>(views.get(a)));
+            }
+        }
+    }
+
+    /**
+     * Makes a random song by one of four artists, so each artist often has no songs at all.
+     * @param random the source of randomness
+     * @return the new SongRecord
+     */
+    private static SongRecord song(Random random) {
+        SongRecord song = new SongRecord();
+        song.setTitle("Song " + random.nextInt(100));
+        song.setArtist((random.nextBoolean() ? "Artist " : "artist ") + random.nextInt(4));
+        song.setMinutes(random.nextInt(6));
+        song.setSeconds(random.nextInt(60));
+        return song;
+    }
+}
@@ -0,0 +1,164 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Differential tests of SongCatalog against a map of reference counts keyed by the exact
+ * song fields, both directly and through Playlists that share a catalog.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+class SongCatalogTest {
+
+    @Test
+    void randomAcquireAndReleaseMatchModel() {
+        Random random = new Random(11);
+        SongCatalog catalog = new SongCatalog();
+        Map<String, Integer> counts = new HashMap<>();
+        Map<String, Integer> ids = new HashMap<>();
+
+        for (int step = 0; step < 20000; step++) {
+            SongRecord song = randomSong(random);
+            String key = key(song);
+            if (random.nextInt(3) > 0 || !counts.containsKey(key)) {
+                int id = catalog.acquire(song);
+                Integer known = ids.putIfAbsent(key, id);
+                if (known != null) {
+                    assertEquals(known.intValue(), id);
+                }
+                counts.merge(key, 1, Integer::sum);
+            } else {
+                int id = ids.get(key);
+                catalog.release(id);
+                if (counts.merge(key, -1, Integer::sum) == 0) {
+                    counts.remove(key);
+                    ids.remove(key);
+                }
+            }
+
+            assertEquals(counts.size(), catalog.size());
+            if (step % 500 == 0) {
+                for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+                    int id = entry.getValue();
+                    assertEquals(entry.getKey(), key(catalog.getSong(id)));
+                    assertEquals(counts.get(entry.getKey()).intValue(), catalog.getReferenceCount(id));
+                    assertEquals(id, catalog.idOf(catalog.getSong(id)));
+                }
+            }
+        }
+    }
+
+    @Test
+    void songsDifferingInCaseStayDistinct() {
+        SongCatalog catalog = new SongCatalog();
+        int lower = catalog.acquire(song("blue", "band", 3, 0));
+        int upper = catalog.acquire(song("Blue", "band", 3, 0));
+        assertTrue(lower != upper);
+        assertEquals(2, catalog.size());
+    }
+
+    @Test
+    void freedIdsAreReused() {
+        SongCatalog catalog = new SongCatalog();
+        int first = catalog.acquire(song("One", "A", 1, 0));
+        catalog.acquire(song("Two", "A", 2, 0));
+        catalog.release(first);
+        assertEquals(-1, catalog.idOf(song("One", "A", 1, 0)));
+        assertThrows(IllegalArgumentException.class, () -> catalog.getSong(first));
+        assertEquals(first, catalog.acquire(song("Three", "A", 3, 0)));
+    }
+
+    @Test
+    void playlistsShareCanonicalSongs() throws FullPlaylistException {
+        Random random = new Random(23);
+        SongCatalog catalog = new SongCatalog();
+        List<Playlist> playlists = new ArrayList<>();
+        List<List<SongRecord>> models = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            playlists.add(new Playlist(catalog));
+            models.add(new ArrayList<>());
+        }
+
+        for (int step = 0; step < 3000; step++) {
+            int p = random.nextInt(playlists.size());
+            Playlist playlist = playlists.get(p);
+            List<SongRecord> model = models.get(p);
+            if (random.nextInt(3) > 0 || model.isEmpty()) {
+                int position = 1 + random.nextInt(model.size() + 1);
+                SongRecord song = randomSong(random);
+                playlist.addSong(song, position);
+                model.add(position - 1, song);
+            } else {
+                int position = 1 + random.nextInt(model.size());
+                playlist.removeSong(position);
+                model.remove(position - 1);
+            }
+        }
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int p = 0; p < playlists.size(); p++) {
+            List<SongRecord> model = models.get(p);
+            assertEquals(model.size(), playlists.get(p).size());
+            for (int i = 0; i < model.size(); i++) {
+                SongRecord stored = playlists.get(p).getSong(i + 1);
+                assertEquals(key(model.get(i)), key(stored));
+                assertSame(catalog.getSong(catalog.idOf(stored)), stored);
+                counts.merge(key(stored), 1, Integer::sum);
+            }
+        }
+        assertEquals(counts.size(), catalog.size());
+
+        for (Playlist playlist : playlists) {
+            playlist.removeRange(1, playlist.size());
+        }
+        assertEquals(0, catalog.size());
+    }
+
+    /**
+     * Makes a random song from small pools, including titles differing only in case.
+     * @param random the source of randomness
+     * @return the new SongRecord
+     */
+    private static SongRecord randomSong(Random random) {
+        String[] titles = {"Blue", "blue", "Red", "Green " + random.nextInt(300)};
+        return song(titles[random.nextInt(titles.length)], "Artist " + random.nextInt(4),
+                    random.nextInt(3), random.nextInt(60));
+    }
+
+    /**
+     * Builds a SongRecord.
+     * @param title the title
+     * @param artist the artist
+     * @param minutes the minutes of the length
+     * @param seconds the seconds of the length
+     * @return the new SongRecord
+     */
+    private static SongRecord song(String title, String artist, int minutes, int seconds) {
+        SongRecord song = new SongRecord();
+        song.setTitle(title);
+        song.setArtist(artist);
+        song.setMinutes(minutes);
+        song.setSeconds(seconds);
+        return song;
+    }
+
+    /**
+     * Identifies a song by its exact fields, as Playlist.songsEqual compares them.
+     * @param song the song
+     * @return a String equal for exactly the equal songs
+     */
+    private static String key(SongRecord song) {
+        return song.getTitle() + '\u0000' + song.getArtist() + '\u0000'
+               + song.getMinutes() + ':' + song.getSeconds();
+    }
+}
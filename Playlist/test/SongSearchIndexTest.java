@@ -0,0 +1,113 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Differential tests of the substring search of a Playlist against a scan of an
+ * ArrayList model, for queries of every length from one character up.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+class SongSearchIndexTest {
+
+    @Test
+    void substringMatchesModel() throws FullPlaylistException {
+        Random random = new Random(41);
+        Playlist playlist = new Playlist();
+        List<SongRecord> model = new ArrayList<>();
+
+        for (int step = 0; step < 4000; step++) {
+            if (random.nextInt(3) > 0 || model.isEmpty()) {
+                int position = 1 + random.nextInt(model.size() + 1);
+                SongRecord song = song(random);
+                playlist.addSong(song, position);
+                model.add(position - 1, song);
+            } else {
+                int position = 1 + random.nextInt(model.size());
+                playlist.removeSong(position);
+                model.remove(position - 1);
+            }
+
+            String query = randomText(random, 1 + random.nextInt(4));
+            if (random.nextBoolean()) {
+                query = query.toUpperCase();
+            }
+            int limit = 1 + random.nextInt(random.nextBoolean() ? 5 : 5000);
+            assertFound(model, query, limit, playlist.searchSubstring(query, limit));
+        }
+    }
+
+    /**
+     * Checks search results against the songs of the model that contain the query.
+     * @param model the songs in the Playlist
+     * @param query the text searched for
+     * @param limit the maximum number of results
+     * @param results the songs the search returned
+     */
+    private static void assertFound(List<SongRecord> model, String query, int limit, List<SongRecord> results) {
+        Set<SongRecord> expected = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (SongRecord song : model) {
+            if (contains(song.getTitle(), query) || contains(song.getArtist(), query)) {
+                expected.add(song);
+            }
+        }
+        Set<SongRecord> found = Collections.newSetFromMap(new IdentityHashMap<>());
+        found.addAll(results);
+        assertEquals(results.size(), found.size(), "results must be distinct");
+        assertEquals(Math.min(limit, expected.size()), results.size(), () -> "results for " + query);
+        assertTrue(expected.containsAll(found), () -> "wrong result for " + query);
+    }
+
+    /**
+     * Checks whether text contains a query, ignoring case.
+     * @param text the field to search
+     * @param query the text searched for
+     * @return true if the query occurs in text
+     */
+    private static boolean contains(String text, String query) {
+        for (int i = 0; i + query.length() <= text.length(); i++) {
+            if (text.regionMatches(true, i, query, 0, query.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Makes a random song from a small alphabet, so short queries match many songs.
+     * @param random the source of randomness
+     * @return the new SongRecord
+     */
+    private static SongRecord song(Random random) {
+        SongRecord song = new SongRecord();
+        song.setTitle(randomText(random, 1 + random.nextInt(10)));
+        song.setArtist(randomText(random, 1 + random.nextInt(6)));
+        song.setMinutes(random.nextInt(6));
+        song.setSeconds(random.nextInt(60));
+        return song;
+    }
+
+    /**
+     * Makes random text from a small alphabet of mixed case.
+     * @param random the source of randomness
+     * @param length the number of characters
+     * @return the text
+     */
+    private static String randomText(Random random, int length) {
+        String alphabet = "abcdeFGHij ";
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+}
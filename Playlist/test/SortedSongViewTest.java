@@ -0,0 +1,145 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Differential tests of the sorted views of a Playlist. Random edits are applied to a
+ * Playlist and to an ArrayList model, and every view must equal a stable sort of the model.
+ *
+ * @author John Hartmann
+ * @version 1.0
+ */
+class SortedSongViewTest {
+
+    @Test
+    void viewsFollowRandomEdits() throws FullPlaylistException {
+        for (long seed = 1; seed <= 2; seed++) {
+            Random random = new Random(seed);
+            Playlist playlist = new Playlist();
+            List<SongRecord> model = new ArrayList<>();
+            List<SongRecord> byTitle = playlist.sortedView(SongOrder.TITLE);
+            List<SongRecord> byArtist = playlist.sortedView(SongOrder.ARTIST);
+            List<SongRecord> byLength = null;
+
+            for (int step = 0; step < 800; step++) {
+                edit(random, playlist, model);
+                if (step == 300) {
+                    // Built from a Playlist that already holds songs
+                    byLength = playlist.sortedView(SongOrder.LENGTH);
+                }
+                assertSorted(model, SongOrder.TITLE, byTitle);
+                assertSorted(model, SongOrder.ARTIST, byArtist);
+                if (byLength != null) {
+                    assertSorted(model, SongOrder.LENGTH, byLength);
+                }
+            }
+        }
+    }
+
+    @Test
+    void viewsSurviveRelabeling() throws FullPlaylistException {
+        Playlist playlist = new Playlist();
+        List<SongRecord> model = new ArrayList<>();
+        List<SongRecord> byTitle = playlist.sortedView(SongOrder.TITLE);
+        Random random = new Random(17);
+        for (int i = 0; i < 2000; i++) {
+            SongRecord song = ChunkedSongListTest.randomSong(random);
+            playlist.addSong(song, 1);
+            model.add(0, song);
+        }
+        // Inserting between the same two songs over and over exhausts the label gaps
+        for (int i = 0; i < 2000; i++) {
+            SongRecord song = ChunkedSongListTest.randomSong(random);
+            playlist.addSong(song, 1000);
+            model.add(999, song);
+        }
+        assertSorted(model, SongOrder.TITLE, byTitle);
+    }
+
+    @Test
+    void viewIsReadOnly() {
+        List<SongRecord> view = new Playlist().sortedView(SongOrder.TITLE);
+        assertThrows(UnsupportedOperationException.class, () -> view.add(new SongRecord()));
+        assertThrows(IndexOutOfBoundsException.class, () -> view.get(0));
+    }
+
+    /**
+     * Makes one random edit to both the Playlist and the model.
+     * @param random the source of randomness
+     * @param playlist the Playlist to edit
+     * @param model the model to edit the same way
+     * @throws FullPlaylistException never, the Playlist stays small
+     */
+    private static void edit(Random random, Playlist playlist, List<SongRecord> model)
+            throws FullPlaylistException {
+        int size = model.size();
+        int choice = size > 2000 ? 3 : random.nextInt(6);
+        if (choice == 0 || size == 0) {
+            int position = 1 + random.nextInt(size + 1);
+            // Adding a song already in the Playlist puts the same object in twice
+            SongRecord song = size > 0 && random.nextInt(4) == 0
+                              ? model.get(random.nextInt(size)) : ChunkedSongListTest.randomSong(random);
+            playlist.addSong(song, position);
+            model.add(position - 1, song);
+        } else if (choice == 1) {
+            int position = 1 + random.nextInt(size);
+            playlist.removeSong(position);
+            model.remove(position - 1);
+        } else if (choice == 2) {
+            int position = 1 + random.nextInt(size + 1);
+            List<SongRecord> batch = new ArrayList<>();
+            for (int i = random.nextInt(600); i > 0; i--) {
+                batch.add(ChunkedSongListTest.randomSong(random));
+            }
+            playlist.addAll(batch, position);
+            model.addAll(position - 1, batch);
+        } else if (choice == 3) {
+            int from = 1 + random.nextInt(size);
+            int to = from + random.nextInt(Math.min(size - from + 1, 700));
+            playlist.removeRange(from, to);
+            model.subList(from - 1, to).clear();
+        } else {
+            int from = 1 + random.nextInt(size);
+            int to = from + random.nextInt(Math.min(size - from + 1, 50));
+            int count = to - from + 1;
+            int newPosition = 1 + random.nextInt(size - count + 1);
+            playlist.moveRange(from, to, newPosition);
+            List<SongRecord> run = model.subList(from - 1, to);
+            List<SongRecord> moved = new ArrayList<>(run);
+            run.clear();
+            model.addAll(newPosition - 1, moved);
+        }
+    }
+
+    /**
+     * Checks that a view holds the model's songs stably sorted in an order.
+     * @param model the songs in playlist order
+     * @param order the order of the view
+     * @param view the view to check
+     */
+    private static void assertSorted(List<SongRecord> model, SongOrder order, List<SongRecord> view) {
+        Comparator<SongRecord> comparator;
+        if (order == SongOrder.TITLE) {
+            comparator = Comparator.comparing(song -> Playlist.foldCase(song.getTitle()));
+        } else if (order == SongOrder.ARTIST) {
+            comparator = Comparator.comparing(song -> Playlist.foldCase(song.getArtist()));
+        } else {
+            comparator = Comparator.comparingInt(song -> song.getMinutes() * 60 + song.getSeconds());
+        }
+        List<SongRecord> expected = new ArrayList<>(model);
+        expected.sort(comparator);
+
+        assertEquals(expected.size(), view.size());
+        for (int i = 0; i < expected.size(); i++) {
+            int index = i;
+            assertSame(expected.get(i), view.get(i), () -> order + " view differs at " + index);
+        }
+    }
+}